@@ -3,6 +3,8 @@ package org.otherband.lifeblood;
 import lombok.extern.slf4j.Slf4j;
 import org.otherband.lifeblood.generated.model.ErrorResponse;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authorization.AuthorizationDeniedException;
 import org.springframework.validation.ObjectError;
@@ -28,6 +30,14 @@ public class ApplicationErrorHandler {
         return ResponseEntity.status(401).body(toErrorResponse(userAuthException.getMessage()));
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleException(ServiceOverloadedException overloadedException) {
+        log.warn("Service overloaded: {}", overloadedException.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(overloadedException.getRetryAfter().toSeconds()))
+                .body(toErrorResponse(overloadedException.getMessage()));
+    }
+
     @ExceptionHandler(UserException.class)
     public ResponseEntity<ErrorResponse> handleException(UserException userException) {
         log.warn("User exception occurred", userException);
@@ -0,0 +1,18 @@
+package org.otherband.lifeblood;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * The server is turning work away to stay responsive, the client should try again after {@link #getRetryAfter()}.
+ */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
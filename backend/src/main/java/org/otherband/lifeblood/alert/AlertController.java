@@ -1,20 +1,13 @@
 package org.otherband.lifeblood.alert;
 
-import org.apache.commons.lang3.StringUtils;
 import org.otherband.lifeblood.ApplicationMapper;
 import org.otherband.lifeblood.UserException;
 import org.otherband.lifeblood.auth.RoleConstants;
 import org.otherband.lifeblood.generated.model.AlertCreationRequest;
 import org.otherband.lifeblood.generated.model.AlertResponse;
-import org.otherband.lifeblood.generated.model.NotificationChannel;
 import org.otherband.lifeblood.generated.model.PageAlertResponse;
 import org.otherband.lifeblood.hospital.HospitalJpaRepository;
-import org.otherband.lifeblood.notifications.push.PushNotification;
-import org.otherband.lifeblood.notifications.push.PushNotificationRepository;
-import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
-import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
 import org.otherband.lifeblood.validations.SimpleValidator;
-import org.otherband.lifeblood.volunteer.VolunteerEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -22,10 +15,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
-import static java.util.Optional.ofNullable;
-
 @RestController
 @RequestMapping(AlertController.ALERT_API)
 public class AlertController {
@@ -33,23 +22,17 @@ public class AlertController {
     public static final String ALERT_API = "/api/v1/alert";
 
     private final AlertJpaRepository alertJpaRepository;
-    private final AlertListenersFinder alertListenersFinder;
     private final HospitalJpaRepository hospitalJpaRepository;
-    private final WhatsAppMessageRepository whatsAppMessageRepository;
-    private final PushNotificationRepository pushNotificationRepository;
+    private final AlertFanOutService alertFanOutService;
     private final ApplicationMapper mapper;
 
     public AlertController(AlertJpaRepository alertJpaRepository,
-                           AlertListenersFinder alertListenersFinder,
                            HospitalJpaRepository hospitalJpaRepository,
-                           WhatsAppMessageRepository whatsAppMessageRepository,
-                           PushNotificationRepository pushNotificationRepository,
+                           AlertFanOutService alertFanOutService,
                            ApplicationMapper mapper) {
         this.alertJpaRepository = alertJpaRepository;
-        this.alertListenersFinder = alertListenersFinder;
         this.hospitalJpaRepository = hospitalJpaRepository;
-        this.whatsAppMessageRepository = whatsAppMessageRepository;
-        this.pushNotificationRepository = pushNotificationRepository;
+        this.alertFanOutService = alertFanOutService;
         this.mapper = mapper;
     }
 
@@ -78,71 +61,7 @@ public class AlertController {
         alert.setHospital(hospitalJpaRepository.findByUuid(request.getHospitalUuid())
                 .orElseThrow(() -> new UserException("Hospital with uuid [%s] does not exist"))
         );
-        AlertEntity saved = alertJpaRepository.save(alert);
-        List<VolunteerEntity> volunteers = alertListenersFinder.findListeners(alert);
-        whatsAppMessageRepository.saveAll(toWhatsAppMessages(alert, volunteers));
-        pushNotificationRepository.saveAll(toPushNotifications(alert, volunteers));
-        return mapper.toResponse(saved);
-    }
-
-    private List<PushNotification> toPushNotifications(AlertEntity alert, List<VolunteerEntity> volunteers) {
-        return volunteers
-                .stream()
-                .filter(
-                        volunteerEntity ->
-                                receivesNotification(volunteerEntity, NotificationChannel.PUSH_NOTIFICATIONS))
-                .filter(volunteerEntity -> StringUtils.isNotBlank(volunteerEntity.getPushNotificationToken()))
-                .map(volunteerEntity -> toPushNotification(alert, volunteerEntity))
-                .toList();
-    }
-
-    private static PushNotification toPushNotification(AlertEntity alert, VolunteerEntity volunteerEntity) {
-        return PushNotification.builder()
-                .pushNotificationType(volunteerEntity.getPushNotificationType())
-                .userToken(volunteerEntity.getPushNotificationToken())
-                .title("%s alert".formatted(AlertLevelUtils.toDisplayName(alert.getAlertLevel())))
-                .body(buildPushNotificationBody(alert))
-                .build();
-    }
-
-    private static String buildPushNotificationBody(AlertEntity alert) {
-        String hospitalName = alert.getHospital().getHospitalName();
-        String alertLevel = AlertLevelUtils.toDisplayName(alert.getAlertLevel());
-        return "Donation request at hospital %s with level %s."
-                .formatted(hospitalName, alertLevel)
-                .concat(doctorMessageOrEmpty(alert));
-    }
-
-    private List<WhatsAppMessageEntity> toWhatsAppMessages(AlertEntity alert, List<VolunteerEntity> volunteers) {
-        return volunteers
-                .stream()
-                .filter(volunteerEntity ->
-                        receivesNotification(volunteerEntity, NotificationChannel.WHATSAPP_MESSAGES))
-                .map(volunteerEntity -> toWhatsAppMessage(alert, volunteerEntity))
-                .toList();
-    }
-
-    private static WhatsAppMessageEntity toWhatsAppMessage(AlertEntity alert, VolunteerEntity volunteerEntity) {
-        return WhatsAppMessageEntity.builder()
-                .templateName("donation_alert")
-                .phoneNumber(volunteerEntity.getPhoneNumber())
-                .templateVariables(List.of(
-                        AlertLevelUtils.toDisplayName(alert.getAlertLevel()),
-                        alert.getHospital().getHospitalName(),
-                        ofNullable(alert.getDoctorMessage()).orElse("")
-                ))
-                .build();
-    }
-
-    private static boolean receivesNotification(VolunteerEntity volunteerEntity, NotificationChannel notificationChannel) {
-        return volunteerEntity.getNotificationChannels().contains(notificationChannel.name());
-    }
-
-    private static String doctorMessageOrEmpty(AlertEntity alert) {
-        return ofNullable(alert.getDoctorMessage())
-                .filter(StringUtils::isNotBlank)
-                .map(" Doctor message: %s"::formatted)
-                .orElse("");
+        return mapper.toResponse(alertFanOutService.createPendingAlert(alert));
     }
 
 }
@@ -3,6 +3,7 @@ package org.otherband.lifeblood.alert;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.otherband.lifeblood.generated.model.AlertLevel;
+import org.otherband.lifeblood.generated.model.FanOutStatus;
 import org.otherband.lifeblood.hospital.HospitalEntity;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -15,7 +16,8 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public class AlertEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alert_seq")
+    @SequenceGenerator(name = "alert_seq", sequenceName = "alert_seq", allocationSize = 50)
     private long id;
     private LocalDateTime fulfilmentDate;
     @Enumerated(EnumType.STRING)
@@ -26,4 +28,12 @@ public class AlertEntity {
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "hospital_uuid", referencedColumnName = "uuid")
     private HospitalEntity hospital;
+
+    @Enumerated(EnumType.STRING)
+    private FanOutStatus fanOutStatus;
+    /**
+     * Id of the last volunteer whose notifications were written, fan-out resumes after it.
+     */
+    private long fanOutCursor;
+    private int fanOutProgress;
 }
@@ -0,0 +1,201 @@
+package org.otherband.lifeblood.alert;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.otherband.lifeblood.generated.model.FanOutStatus;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.NotificationPayloadRepository;
+import org.otherband.lifeblood.notifications.NotificationPriority;
+import org.otherband.lifeblood.notifications.handoff.OutboxHandOff;
+import org.otherband.lifeblood.notifications.push.PushNotification;
+import org.otherband.lifeblood.notifications.push.PushNotificationRepository;
+import org.otherband.lifeblood.notifications.wakeup.WakeUpChannel;
+import org.otherband.lifeblood.notifications.wakeup.WakeUpSignal;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
+import org.otherband.lifeblood.volunteer.VolunteerContact;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Turns pending alerts into outbox rows, one batch of listeners per transaction.
+ */
+@Slf4j
+@Service
+public class AlertFanOutService {
+
+    private final AlertJpaRepository alertJpaRepository;
+    private final AlertListenersFinder alertListenersFinder;
+    private final WhatsAppMessageRepository whatsAppMessageRepository;
+    private final PushNotificationRepository pushNotificationRepository;
+    private final NotificationPayloadRepository notificationPayloadRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WakeUpSignal wakeUpSignal;
+    private final OutboxHandOff outboxHandOff;
+    private final int batchSize;
+
+    public AlertFanOutService(AlertJpaRepository alertJpaRepository,
+                              AlertListenersFinder alertListenersFinder,
+                              WhatsAppMessageRepository whatsAppMessageRepository,
+                              PushNotificationRepository pushNotificationRepository,
+                              NotificationPayloadRepository notificationPayloadRepository,
+                              TransactionTemplate transactionTemplate,
+                              WakeUpSignal wakeUpSignal,
+                              OutboxHandOff outboxHandOff,
+                              @Value("${alerts.fan.out.batch.size}") int batchSize) {
+        this.alertJpaRepository = alertJpaRepository;
+        this.alertListenersFinder = alertListenersFinder;
+        this.whatsAppMessageRepository = whatsAppMessageRepository;
+        this.pushNotificationRepository = pushNotificationRepository;
+        this.notificationPayloadRepository = notificationPayloadRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.wakeUpSignal = wakeUpSignal;
+        this.outboxHandOff = outboxHandOff;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Saves the alert as pending fan-out together with its rendered payload, and wakes the fan-out job once
+     * both are committed.
+     */
+    @Transactional
+    public AlertEntity createPendingAlert(AlertEntity alert) {
+        alert.setFanOutStatus(FanOutStatus.PENDING);
+        AlertEntity saved = alertJpaRepository.save(alert);
+        notificationPayloadRepository.save(toPayload(saved));
+        wakeUpSignal.signal(WakeUpChannel.ALERTS);
+        return saved;
+    }
+
+    public void fanOutPendingAlerts() {
+        long lastAlertId = 0;
+        List<AlertEntity> pending;
+        do {
+            pending = alertJpaRepository.findTop10ByFanOutStatusNotAndIdGreaterThanOrderByIdAsc(FanOutStatus.COMPLETED,
+                    lastAlertId);
+            for (AlertEntity alert : pending) {
+                try {
+                    fanOut(alert);
+                } catch (Exception e) {
+                    log.error("Fan-out of alert [{}] failed, it will be resumed on the next run", alert.getId(), e);
+                }
+                lastAlertId = alert.getId();
+            }
+        } while (!pending.isEmpty());
+    }
+
+    private void fanOut(AlertEntity alert) {
+        // alerts queued before payloads existed get theirs rendered on first fan-out
+        NotificationPayloadEntity payload = notificationPayloadRepository.findByAlertId(alert.getId())
+                .orElseGet(() -> notificationPayloadRepository.save(toPayload(alert)));
+        alertListenersFinder.syncSubscriptions();
+        FanOutBatch batch = new FanOutBatch(alert.getFanOutCursor(), alert.getFanOutStatus());
+        while (batch.status() != FanOutStatus.COMPLETED) {
+            long expectedCursor = batch.cursor();
+            batch = transactionTemplate.execute(transactionStatus -> writeNextBatch(alert, payload, expectedCursor));
+            if (batch == null) {
+                // another worker wrote this batch, continue from wherever it left the alert
+                batch = alertJpaRepository.findById(alert.getId())
+                        .map(current -> new FanOutBatch(current.getFanOutCursor(), current.getFanOutStatus()))
+                        .orElseThrow();
+            }
+        }
+    }
+
+    /**
+     * Reads one chunk of listeners and writes their outbox rows. Each chunk runs in its own transaction,
+     * so the persistence context holding the chunk is discarded before the next one is loaded.
+     */
+    private FanOutBatch writeNextBatch(AlertEntity alert, NotificationPayloadEntity payload, long expectedCursor) {
+        List<VolunteerContact> listeners = alertListenersFinder.findListeners(alert, expectedCursor, batchSize);
+        long newCursor = listeners.isEmpty() ? expectedCursor : listeners.getLast().id();
+        FanOutStatus status = listeners.size() < batchSize ? FanOutStatus.COMPLETED : FanOutStatus.IN_PROGRESS;
+        int updated = alertJpaRepository.advanceFanOut(alert.getId(), expectedCursor, newCursor, listeners.size(), status);
+        if (updated == 0) {
+            return null;
+        }
+        NotificationPriority priority = NotificationPriority.of(alert.getAlertLevel());
+        outboxHandOff.publishAfterCommit(NotificationChannel.WHATSAPP_MESSAGES,
+                whatsAppMessageRepository.saveAll(toWhatsAppMessages(payload, priority, listeners)));
+        outboxHandOff.publishAfterCommit(NotificationChannel.PUSH_NOTIFICATIONS,
+                pushNotificationRepository.saveAll(toPushNotifications(payload, priority, listeners)));
+        if (!listeners.isEmpty()) {
+            // the first batch of an alert starts going out while the next ones are still being written
+            wakeUpSignal.signal(WakeUpChannel.OUTBOX);
+        }
+        return new FanOutBatch(newCursor, status);
+    }
+
+    private static NotificationPayloadEntity toPayload(AlertEntity alert) {
+        String alertLevel = AlertLevelUtils.toDisplayName(alert.getAlertLevel());
+        String hospitalName = alert.getHospital().getHospitalName();
+        return NotificationPayloadEntity.builder()
+                .alertId(alert.getId())
+                .pushTitle("%s alert".formatted(alertLevel))
+                .pushBody("Donation request at hospital %s with level %s."
+                        .formatted(hospitalName, alertLevel)
+                        .concat(doctorMessageOrEmpty(alert)))
+                .templateName("donation_alert")
+                .templateVariables(List.of(
+                        alertLevel,
+                        hospitalName,
+                        ofNullable(alert.getDoctorMessage()).orElse("")
+                ))
+                .build();
+    }
+
+    private static List<PushNotification> toPushNotifications(NotificationPayloadEntity payload,
+                                                              NotificationPriority priority,
+                                                              List<VolunteerContact> volunteers) {
+        return volunteers
+                .stream()
+                .filter(
+                        volunteer ->
+                                receivesNotification(volunteer, NotificationChannel.PUSH_NOTIFICATIONS))
+                .filter(volunteer -> StringUtils.isNotBlank(volunteer.pushNotificationToken()))
+                .map(volunteer -> PushNotification.builder()
+                        .payload(payload)
+                        .priority(priority)
+                        .pushNotificationType(volunteer.pushNotificationType())
+                        .userToken(volunteer.pushNotificationToken())
+                        .build())
+                .toList();
+    }
+
+    private static List<WhatsAppMessageEntity> toWhatsAppMessages(NotificationPayloadEntity payload,
+                                                                  NotificationPriority priority,
+                                                                  List<VolunteerContact> volunteers) {
+        return volunteers
+                .stream()
+                .filter(volunteer ->
+                        receivesNotification(volunteer, NotificationChannel.WHATSAPP_MESSAGES))
+                .map(volunteer -> WhatsAppMessageEntity.builder()
+                        .payload(payload)
+                        .priority(priority)
+                        .phoneNumber(volunteer.phoneNumber())
+                        .build())
+                .toList();
+    }
+
+    private static boolean receivesNotification(VolunteerContact volunteer, NotificationChannel notificationChannel) {
+        return volunteer.notificationChannels().contains(notificationChannel.name());
+    }
+
+    private static String doctorMessageOrEmpty(AlertEntity alert) {
+        return ofNullable(alert.getDoctorMessage())
+                .filter(StringUtils::isNotBlank)
+                .map(" Doctor message: %s"::formatted)
+                .orElse("");
+    }
+
+    private record FanOutBatch(long cursor, FanOutStatus status) {
+    }
+
+}
@@ -1,10 +1,34 @@
 package org.otherband.lifeblood.alert;
 
+import org.otherband.lifeblood.generated.model.FanOutStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface AlertJpaRepository extends JpaRepository<AlertEntity, Long> {
     Page<AlertEntity> findAllByOrderByCreationDateDesc(Pageable pageable);
     Page<AlertEntity> findAllByFulfilmentDateIsNullOrderByCreationDateDesc(Pageable pageable);
+    List<AlertEntity> findTop10ByFanOutStatusNotAndIdGreaterThanOrderByIdAsc(FanOutStatus fanOutStatus, long id);
+
+    /**
+     * Compare-and-set on the fan-out cursor, a return value of 0 means another worker already wrote this batch.
+     */
+    @Modifying
+    @Query("""
+            update alert a
+            set a.fanOutCursor = :newCursor,
+                a.fanOutProgress = a.fanOutProgress + :batchSize,
+                a.fanOutStatus = :fanOutStatus
+            where a.id = :id and a.fanOutCursor = :expectedCursor
+            """)
+    int advanceFanOut(@Param("id") long id,
+                      @Param("expectedCursor") long expectedCursor,
+                      @Param("newCursor") long newCursor,
+                      @Param("batchSize") int batchSize,
+                      @Param("fanOutStatus") FanOutStatus fanOutStatus);
 }
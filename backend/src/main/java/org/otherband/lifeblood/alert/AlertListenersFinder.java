@@ -1,29 +1,63 @@
 package org.otherband.lifeblood.alert;
 
 import org.otherband.lifeblood.generated.model.AlertLevel;
-import org.otherband.lifeblood.volunteer.VolunteerEntity;
+import org.otherband.lifeblood.volunteer.VolunteerContact;
 import org.otherband.lifeblood.volunteer.VolunteerJpaRepository;
+import org.otherband.lifeblood.volunteer.VolunteerSubscriptionIndex;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class AlertListenersFinder {
 
     private final VolunteerJpaRepository volunteerJpaRepository;
+    private final VolunteerSubscriptionIndex subscriptionIndex;
 
-    public AlertListenersFinder(VolunteerJpaRepository volunteerJpaRepository) {
+    public AlertListenersFinder(VolunteerJpaRepository volunteerJpaRepository,
+                                VolunteerSubscriptionIndex subscriptionIndex) {
         this.volunteerJpaRepository = volunteerJpaRepository;
+        this.subscriptionIndex = subscriptionIndex;
     }
 
-    public List<VolunteerEntity> findListeners(AlertEntity alertEntity) {
+    /**
+     * Brings the subscriptions up to date with volunteers changed elsewhere, before an alert is fanned out.
+     */
+    public void syncSubscriptions() {
+        subscriptionIndex.sync();
+    }
+
+    /**
+     * Returns the next chunk of listeners with an id greater than {@code afterVolunteerId}, ordered by id.
+     * A chunk smaller than {@code chunkSize} is the last one.
+     */
+    public List<VolunteerContact> findListeners(AlertEntity alertEntity, long afterVolunteerId, int chunkSize) {
+        List<Long> volunteerIds = nextIds(findListenerIds(alertEntity), afterVolunteerId, chunkSize);
+        if (volunteerIds.isEmpty()) {
+            return List.of();
+        }
+        return volunteerJpaRepository.findContactsByIdIn(volunteerIds);
+    }
+
+    private Roaring64Bitmap findListenerIds(AlertEntity alertEntity) {
         AlertLevel alertLevel = alertEntity.getAlertLevel();
         return switch (alertLevel) {
-            case ROUTINE, URGENT -> volunteerJpaRepository
-                    .findByAlertableHospitalsContainsAndMinimumSeverityGreaterThanEqual(alertEntity.getHospital(),
-                            AlertLevelUtils.toLevel(alertLevel));
-            case LIFE_OR_DEATH -> volunteerJpaRepository.findAll();
+            case ROUTINE, URGENT -> subscriptionIndex.findSubscribers(alertEntity.getHospital().getId(),
+                    AlertLevelUtils.toLevel(alertLevel));
+            case LIFE_OR_DEATH -> subscriptionIndex.findAll();
         };
     }
 
+    private static List<Long> nextIds(Roaring64Bitmap volunteerIds, long afterVolunteerId, int chunkSize) {
+        List<Long> result = new ArrayList<>(chunkSize);
+        PeekableLongIterator iterator = volunteerIds.getLongIteratorFrom(afterVolunteerId + 1);
+        while (iterator.hasNext() && result.size() < chunkSize) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
 }
@@ -1,5 +1,6 @@
 package org.otherband.lifeblood.auth;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.AssertionFailure;
 import org.otherband.lifeblood.PhoneNumberUtil;
@@ -8,10 +9,11 @@ import org.otherband.lifeblood.generated.model.LoginRequest;
 import org.otherband.lifeblood.generated.model.LoginResponse;
 import org.otherband.lifeblood.generated.model.RefreshTokenRequest;
 import org.otherband.lifeblood.volunteer.UserDetails;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -21,20 +23,28 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthController {
 
     public static final String AUTH_API = "/api/v1/auth";
+    /**
+     * Carries the refresh token that replaces the one sent to {@code /refresh}, absent when that one had already
+     * been replaced moments before.
+     */
+    public static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
 
     private final AuthenticationJpaRepository authenticationJpaRepository;
-    private final RefreshTokenRepository refreshTokenRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationList tokenRevocationList;
 
     public AuthController(AuthenticationJpaRepository authenticationJpaRepository,
-                          RefreshTokenRepository refreshTokenRepository,
-                          PasswordEncoder passwordEncoder,
-                          JwtService jwtService) {
+                          PasswordHasher passwordHasher,
+                          JwtService jwtService,
+                          VerifiedTokenCache verifiedTokenCache,
+                          TokenRevocationList tokenRevocationList) {
         this.authenticationJpaRepository = authenticationJpaRepository;
-        this.refreshTokenRepository = refreshTokenRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtService = jwtService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     @PostMapping
@@ -45,6 +55,10 @@ public class AuthController {
                 authenticationJpaRepository.findAuthEntityByPhoneNumber(PhoneNumberUtil.INSTANCE.formatPhoneNumber(loginRequest.getPhoneNumber()))
                 .filter(authEntity -> passwordsMatch(authEntity.getHashedPassword(), loginRequest.getPassword()))
                 .orElseThrow(() -> new UserAuthException("Phone number and password combination not found"));
+        passwordHasher.rehash(loginRequest.getPassword(), auth.getHashedPassword()).ifPresent(rehashed -> {
+            auth.setHashedPassword(rehashed);
+            authenticationJpaRepository.save(auth);
+        });
 
         LoginResponse loginResponse = new LoginResponse();
         loginResponse.setRefreshToken(jwtService.generateRefreshToken(buildUser(auth), auth.getUserUuid()));
@@ -56,22 +70,39 @@ public class AuthController {
     @PostMapping
     @RequestMapping("/refresh")
     @PreAuthorize(RoleConstants.ALLOW_ALL)
-    public String refresh(@RequestBody RefreshTokenRequest request) {
+    public String refresh(@RequestBody RefreshTokenRequest request, HttpServletResponse response) {
         String phoneNumber = request.getPhoneNumber();
         phoneNumber = PhoneNumberUtil.INSTANCE.formatPhoneNumber(phoneNumber);
         if (!jwtService.isValidRefreshToken(phoneNumber, request.getRefreshToken())) {
             throw new UserAuthException("Invalid or expired refresh token");
         }
-        refreshTokenRepository.findRefreshTokenEntityByPhoneNumber(phoneNumber)
-                .stream()
-                .filter(refreshTokenEntity ->
-                        refreshTokenEntity.getTokenHash().equals(String.valueOf(request.getRefreshToken().hashCode())))
-                .findFirst()
+        RefreshTokenEntity refreshToken = jwtService.findRefreshToken(request.getRefreshToken())
                 .orElseThrow(() ->
-                        new UserAuthException("Refresh token was considered valid, but it does not exist in the repository. Revoked or forged."));
-        return authenticationJpaRepository.findAuthEntityByPhoneNumber(phoneNumber)
-                .map(authEntity -> jwtService.generateToken(buildUser(authEntity), authEntity.getUserUuid()))
+                        new UserAuthException("Refresh token was considered valid, but it does not exist in the repository. Revoked, rotated or forged."));
+        AuthEntity auth = authenticationJpaRepository.findAuthEntityByPhoneNumber(phoneNumber)
                 .orElseThrow(() -> new AssertionFailure("Disastrous: refresh token was considered valid, but user was not found"));
+        UserDetails user = buildUser(auth);
+        jwtService.rotateRefreshToken(refreshToken, user, auth.getUserUuid())
+                .ifPresent(rotated -> response.setHeader(REFRESH_TOKEN_HEADER, rotated));
+        return jwtService.generateToken(user, auth.getUserUuid());
+    }
+
+    /**
+     * Revokes the access token the request was made with, and deletes the refresh token if one is given, so
+     * neither can be used again.
+     */
+    @PostMapping
+    @RequestMapping("/logout")
+    @PreAuthorize(RoleConstants.IS_AUTHENTICATED)
+    public void logout(@RequestBody RefreshTokenRequest request,
+                       @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        String accessToken = authorization.substring("Bearer ".length());
+        JwtPrincipal principal = verifiedTokenCache.verify(accessToken, jwtService::verify);
+        tokenRevocationList.revoke(principal);
+        verifiedTokenCache.invalidate(accessToken);
+        if (request.getRefreshToken() != null) {
+            jwtService.deleteRefreshToken(principal.subject(), request.getRefreshToken());
+        }
     }
 
     private static UserDetails buildUser(AuthEntity auth) {
@@ -82,7 +113,7 @@ public class AuthController {
     }
 
     private boolean passwordsMatch(String actualHashed, String submitted) {
-        return passwordEncoder.matches(submitted, actualHashed);
+        return passwordHasher.matches(submitted, actualHashed);
     }
 
 }
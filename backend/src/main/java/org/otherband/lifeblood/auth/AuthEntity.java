@@ -15,7 +15,8 @@ import java.util.Set;
 @AllArgsConstructor
 public class AuthEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auth_seq")
+    @SequenceGenerator(name = "auth_seq", sequenceName = "auth_seq", allocationSize = 50)
     private Long id;
     private String userUuid;
     private String phoneNumber;
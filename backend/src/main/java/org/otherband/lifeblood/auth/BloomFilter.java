@@ -0,0 +1,84 @@
+package org.otherband.lifeblood.auth;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size Bloom filter over strings, safe to read and write from any thread without locking.
+ */
+public final class BloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final int expectedInsertions;
+
+    /**
+     * @param expectedInsertions most strings the filter holds before going past its false positive rate
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) ((Math.max(64, optimalBits) + 63) / 64));
+        this.bits = words.length() * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        this.expectedInsertions = n;
+    }
+
+    public void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public long bitSize() {
+        return bits;
+    }
+
+    /**
+     * 64-bit FNV-1a, token ids are short enough for it to cost next to nothing.
+     */
+    private static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads the bits so the derived indexes look independent.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
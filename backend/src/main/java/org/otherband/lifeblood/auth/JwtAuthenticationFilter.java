@@ -1,5 +1,6 @@
 package org.otherband.lifeblood.auth;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,20 +14,23 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-import static java.util.Optional.ofNullable;
-
 @Component
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationList tokenRevocationList;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   VerifiedTokenCache verifiedTokenCache,
+                                   TokenRevocationList tokenRevocationList) {
         this.jwtService = jwtService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
     @Override
@@ -41,31 +45,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try {
-            final String jwt = authHeader.substring(7);
-            final String subject = jwtService.extractSubject(jwt);
+            final JwtPrincipal principal = verifiedTokenCache.verify(authHeader.substring(7), jwtService::verify);
 
-            if (subject != null) {
-                if (jwtService.isValidToken(jwt)) {
-                    List<String> roles = ofNullable(jwtService.extractRoles(jwt)).orElse(Collections.emptyList());
-                    List<SimpleGrantedAuthority> authorities = roles.stream()
-                            .map(SimpleGrantedAuthority::new)
-                            .toList();
+            if (tokenRevocationList.isRevoked(principal.tokenId())) {
+                log.debug("Rejected revoked token for request URL [{}]", request.getRequestURI());
+            } else if (principal.subject() != null) {
+                List<SimpleGrantedAuthority> authorities = principal.roles().stream()
+                        .map(SimpleGrantedAuthority::new)
+                        .toList();
 
-                    Map<String, Object> principalDetails = Map.of(
-                            "subject", subject,
-                            "user_uuid", jwtService.extractUuid(jwt)
-                    );
+                Map<String, Object> principalDetails = Map.of(
+                        "subject", principal.subject(),
+                        "user_uuid", principal.userUuid()
+                );
 
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            principalDetails,
-                            null,
-                            authorities
-                    );
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        principalDetails,
+                        null,
+                        authorities
+                );
 
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
             }
+        } catch (JwtException e) {
+            log.debug("Rejected token for request URL [{}]: {}", request.getRequestURI(), e.getMessage());
+            SecurityContextHolder.clearContext();
         } catch (Exception e) {
             log.error("An error occurred in the authentication filter. Request URL [{}]", request.getContextPath(),  e);
             SecurityContextHolder.clearContext();
@@ -0,0 +1,18 @@
+package org.otherband.lifeblood.auth;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What a verified token says about its bearer.
+ *
+ * @param tokenId   the token's {@code jti}, null for tokens issued without one
+ * @param userUuid  null for tokens issued without one
+ * @param expiresAt when the token stops being accepted
+ */
+public record JwtPrincipal(String tokenId, String subject, String userUuid, List<String> roles, Instant expiresAt) {
+
+    public JwtPrincipal {
+        roles = roles == null ? List.of() : List.copyOf(roles);
+    }
+}
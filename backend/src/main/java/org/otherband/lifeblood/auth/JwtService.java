@@ -1,15 +1,18 @@
 package org.otherband.lifeblood.auth;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
-import io.jsonwebtoken.Jwt;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.otherband.lifeblood.TimeService;
+import org.otherband.lifeblood.UserAuthException;
 import org.otherband.lifeblood.volunteer.UserDetails;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
@@ -17,60 +20,137 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.function.Function;
-
-import static java.util.Optional.ofNullable;
 
+/**
+ * Issues and verifies access tokens, and issues, rotates and revokes the stored refresh tokens.
+ */
 @Service
 @Slf4j
 public class JwtService {
 
-    private final String secretKey;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private static final Duration REFRESH_TOKEN_EXPIRATION = Duration.of(21, ChronoUnit.DAYS);
+
     private final Duration tokenExpiration;
+    private final Duration rotationGrace;
+    private final Duration reuseDetectionWindow;
     private final TimeService timeService;
     private final RefreshTokenRepository refreshTokenRepository;
 
     public JwtService(@Value("${jwt.secret.key}") String secretKey,
                       @Value("${jwt.token.expiration.minutes}") int tokenExpiration,
+                      @Value("${jwt.refresh.token.rotation.grace.seconds}") long rotationGrace,
                       TimeService timeService,
                       RefreshTokenRepository refreshTokenRepository) {
-        this.secretKey = secretKey;
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .clock(() -> timeService.toDate(timeService.now()))
+                .build();
         this.tokenExpiration = Duration.ofMinutes(tokenExpiration);
+        this.rotationGrace = Duration.ofSeconds(rotationGrace);
+        this.reuseDetectionWindow = this.tokenExpiration.compareTo(this.rotationGrace) > 0
+                ? this.tokenExpiration
+                : this.rotationGrace;
         this.timeService = timeService;
         this.refreshTokenRepository = refreshTokenRepository;
     }
 
     public String generateRefreshToken(UserDetails userDetails, String userUuid) {
+        return generateRefreshToken(userDetails, userUuid, UUID.randomUUID().toString(),
+                timeService.now().plus(REFRESH_TOKEN_EXPIRATION));
+    }
+
+    /**
+     * @param expirationDate when the family expires, set at login and carried over by every rotation
+     */
+    private String generateRefreshToken(UserDetails userDetails, String userUuid, String familyId,
+                                        LocalDateTime expirationDate) {
         LocalDateTime now = timeService.now();
-        LocalDateTime expirationDate = now.plus(Duration.of(21, ChronoUnit.DAYS));
 
         String refreshToken = Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userDetails.getPhoneNumber())
                 .issuedAt(timeService.toDate(now))
                 .claims(Map.of("user_uuid", userUuid))
                 .expiration(timeService.toDate(expirationDate))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .claim("refreshToken", true)
                 .compact();
 
         RefreshTokenEntity entity = new RefreshTokenEntity();
         entity.setPhoneNumber(userDetails.getPhoneNumber());
-        entity.setTokenHash(String.valueOf(refreshToken.hashCode()));
+        entity.setTokenDigest(TokenDigest.sha256(refreshToken));
+        entity.setExpiresAt(expirationDate);
+        entity.setFamilyId(familyId);
         refreshTokenRepository.save(entity);
 
         return refreshToken;
     }
 
+    /**
+     * @throws JwtException if the token was not signed with this service's key
+     */
     public boolean isValidRefreshToken(String subject, String refreshToken) {
-        Jws<Claims> claimsJws = Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(refreshToken);
-        Boolean isRefreshToken = Optional.of(claimsJws).map(Jwt::getPayload)
-                .filter(claims -> subject.equals(claims.getSubject()))
-                .map(claims -> claims.get("refreshToken"))
-                .filter(object -> object instanceof Boolean)
-                .map(object -> (Boolean) object)
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(refreshToken).getPayload();
+        } catch (ExpiredJwtException e) {
+            return false;
+        }
+        return subject.equals(claims.getSubject()) && Boolean.TRUE.equals(claims.get("refreshToken"));
+    }
+
+    /**
+     * @return the stored refresh token, rotated or not, empty if it was never issued, has expired or was revoked
+     */
+    public Optional<RefreshTokenEntity> findRefreshToken(String refreshToken) {
+        LocalDateTime now = timeService.now();
+        return refreshTokenRepository.findByTokenDigest(TokenDigest.sha256(refreshToken))
+                .filter(entity -> entity.getExpiresAt().isAfter(now));
+    }
+
+    /**
+     * Issues a new refresh token of the same family in place of the one just used, expiring with the family. A
+     * token used again within the grace period after its rotation, as by requests the client had already sent
+     * with it, is let through without a new refresh token. One used again any later is taken as stolen and its
+     * whole family is revoked. A rotated token is only kept for one access token lifetime, then swept.
+     *
+     * @return the new refresh token, empty if the used one had already been rotated within the grace period
+     * @throws UserAuthException if the used one was rotated longer than the grace period ago
+     */
+    @Transactional(noRollbackFor = UserAuthException.class)
+    public Optional<String> rotateRefreshToken(RefreshTokenEntity used, UserDetails userDetails, String userUuid) {
+        LocalDateTime now = timeService.now();
+        LocalDateTime keepUntil = now.plus(reuseDetectionWindow);
+        if (keepUntil.isAfter(used.getExpiresAt())) {
+            keepUntil = used.getExpiresAt();
+        }
+        if (refreshTokenRepository.markRotated(used.getId(), now, keepUntil) == 1) {
+            return Optional.of(generateRefreshToken(userDetails, userUuid, used.getFamilyId(), used.getExpiresAt()));
+        }
+        boolean withinGrace = refreshTokenRepository.findRotatedAt(used.getId())
+                .map(rotatedAt -> rotatedAt.plus(rotationGrace).isAfter(now))
                 .orElse(false);
-        return isRefreshToken && hasNotExpired(refreshToken);
+        if (withinGrace) {
+            return Optional.empty();
+        }
+        int revoked = refreshTokenRepository.deleteFamily(used.getFamilyId());
+        log.warn("Refresh token of [{}] was reused after its rotation, revoked the [{}] tokens of its family",
+                used.getPhoneNumber(), revoked);
+        throw new UserAuthException("Refresh token was already rotated, please log in again");
+    }
 
+    /**
+     * Forgets the refresh token, along with the tokens rotated from the same login, if it was issued to the
+     * subject, so none of them can be used again.
+     */
+    @Transactional
+    public void deleteRefreshToken(String subject, String refreshToken) {
+        refreshTokenRepository.findByTokenDigest(TokenDigest.sha256(refreshToken))
+                .filter(entity -> entity.getPhoneNumber().equals(subject))
+                .ifPresent(entity -> refreshTokenRepository.deleteFamily(entity.getFamilyId()));
     }
 
     public String generateToken(UserDetails userDetails, String userUuid) {
@@ -89,58 +169,30 @@ public class JwtService {
         Date nowDate = timeService.toDate(now);
         Date expirationDate = timeService.toDate(expiration);
 
-        return Jwts.builder().claims(extraClaims).subject(subject).issuedAt(nowDate).expiration(expirationDate).signWith(getSigningKey()).compact();
+        return Jwts.builder().id(UUID.randomUUID().toString()).claims(extraClaims).subject(subject).issuedAt(nowDate).expiration(expirationDate).signWith(signingKey).compact();
+    }
+
+    /**
+     * Checks the token's signature and expiry and decodes its claims.
+     *
+     * @throws JwtException if the token is forged, malformed or expired
+     */
+    public JwtPrincipal verify(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        return new JwtPrincipal(claims.getId(),
+                claims.getSubject(),
+                claims.get("user_uuid") instanceof String userUuid ? userUuid : null,
+                claims.get("roles") instanceof List<?> roles ? roles.stream().map(String::valueOf).toList() : List.of(),
+                claims.getExpiration().toInstant());
     }
 
     public boolean isValidToken(String token) {
         try {
-            Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token);
-            return hasNotExpired(token);
-        } catch (Exception e) {
-            log.error("Exception while validating token {}", token, e);
+            verify(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected token: {}", e.getMessage());
             return false;
         }
     }
-
-    public String extractSubject(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    public String extractUuid(String token) {
-        return extractClaim(token, claims ->
-                ofNullable(claims.get("user_uuid"))
-                        .filter(o -> o instanceof String)
-                        .map(Object::toString)
-                        .orElse(null));
-    }
-
-    @SuppressWarnings("unchecked")
-    public List<String> extractRoles(String token) {
-        Claims claims = extractAllClaims(token);
-        return (List<String>) claims.get("roles");
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private  <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().verifyWith(getSigningKey()).build().parseSignedClaims(token).getPayload();
-    }
-
-    private boolean hasNotExpired(String token) {
-        Date expiration = extractExpiration(token);
-        LocalDateTime expirationTime = LocalDateTime.ofInstant(expiration.toInstant(), timeService.getZoneId());
-        return !expirationTime.isBefore(timeService.now());
-    }
-
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package org.otherband.lifeblood.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.otherband.lifeblood.ServiceOverloadedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hashes passwords on a small bounded pool, turning callers away with a {@link ServiceOverloadedException} once
+ * its queue is full.
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = meterRegistry.timer("auth.password.hashing", "operation", "encode");
+        this.matchesTimer = meterRegistry.timer("auth.password.hashing", "operation", "matches");
+        this.rejected = meterRegistry.counter("auth.password.hashing.rejected");
+        meterRegistry.gaugeCollectionSize("auth.password.hashing.queue", List.of(), queue);
+    }
+
+    public String encode(String rawPassword) {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String hashedPassword) {
+        return run(matchesTimer, () -> passwordEncoder.matches(rawPassword, hashedPassword));
+    }
+
+    /**
+     * Hashes the password again if its hash was made with settings weaker than the configured ones, to be called
+     * once the password is known to match.
+     *
+     * @return the new hash to store, empty if the current one is fine
+     */
+    public Optional<String> rehash(String rawPassword, String hashedPassword) {
+        if (!passwordEncoder.upgradeEncoding(hashedPassword)) {
+            return Optional.empty();
+        }
+        return Optional.of(encode(rawPassword));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Timer timer, Supplier<T> hashing) {
+        Future<T> result;
+        try {
+            result = executor.submit(() -> timer.record(hashing));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceOverloadedException("Too many logins and registrations in progress", RETRY_AFTER);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
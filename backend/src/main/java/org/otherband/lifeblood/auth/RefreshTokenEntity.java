@@ -12,10 +12,23 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public class RefreshTokenEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_token_seq")
+    @SequenceGenerator(name = "refresh_token_seq", sequenceName = "refresh_token_seq", allocationSize = 50)
     private Long id;
-    private String tokenHash;
+    /**
+     * {@link TokenDigest#sha256(String)} of the token, unique.
+     */
+    private String tokenDigest;
     private String phoneNumber;
+    private LocalDateTime expiresAt;
+    /**
+     * Shared by the token issued at login and every token rotated from it.
+     */
+    private String familyId;
+    /**
+     * When the token was replaced by a new one, null while it is the latest of its family.
+     */
+    private LocalDateTime rotatedAt;
     @CreatedDate
     private LocalDateTime creationDate;
 }
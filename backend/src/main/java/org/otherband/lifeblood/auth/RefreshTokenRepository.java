@@ -1,11 +1,52 @@
 package org.otherband.lifeblood.auth;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshTokenEntity, Long> {
-    List<RefreshTokenEntity> findRefreshTokenEntityByPhoneNumber(String phoneNumber);
+
+    Optional<RefreshTokenEntity> findByTokenDigest(String tokenDigest);
+
+    /**
+     * Marks the token rotated unless it already was, so of two requests rotating it at once only one wins, and
+     * moves its expiry up to {@code keepUntil} so it is swept once reuse no longer needs detecting.
+     *
+     * @return 1 if this call rotated the token, 0 otherwise
+     */
+    @Modifying
+    @Query("""
+            update refresh_token t set t.rotatedAt = :now, t.expiresAt = :keepUntil
+            where t.id = :id and t.rotatedAt is null
+            """)
+    int markRotated(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("keepUntil") LocalDateTime keepUntil);
+
+    /**
+     * Reads when the token was rotated from the database rather than from the persistence context.
+     */
+    @Query("select t.rotatedAt from refresh_token t where t.id = :id")
+    Optional<LocalDateTime> findRotatedAt(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from refresh_token t where t.familyId = :familyId")
+    int deleteFamily(@Param("familyId") String familyId);
+
+    /**
+     * Deletes up to {@code limit} tokens that expired before {@code now}, so a large backlog is purged in short
+     * transactions.
+     *
+     * @return the number of tokens deleted
+     */
+    @Modifying
+    @Query(value = """
+            delete from refresh_token
+            where id in (select id from refresh_token where expires_at < :now limit :limit)
+            """, nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
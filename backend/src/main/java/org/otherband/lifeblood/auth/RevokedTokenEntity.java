@@ -0,0 +1,31 @@
+package org.otherband.lifeblood.auth;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An access token refused before its expiry, kept until it would have expired anyway.
+ */
+@Entity(name = "revoked_token")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedTokenEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "revoked_token_seq")
+    @SequenceGenerator(name = "revoked_token_seq", sequenceName = "revoked_token_seq", allocationSize = 50)
+    private Long id;
+    /**
+     * The token's {@code jti}, unique.
+     */
+    private String tokenId;
+    private String subject;
+    private LocalDateTime expiresAt;
+    private LocalDateTime revokedAt;
+}
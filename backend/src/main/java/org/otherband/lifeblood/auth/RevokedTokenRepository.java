@@ -0,0 +1,30 @@
+package org.otherband.lifeblood.auth;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokenEntity, Long> {
+
+    List<RevokedTokenEntity> findByExpiresAtAfter(LocalDateTime now);
+
+    List<RevokedTokenEntity> findByRevokedAtAfter(LocalDateTime since);
+
+    /**
+     * Deletes up to {@code limit} revocations of tokens that expired before {@code now}.
+     *
+     * @return the number of revocations deleted
+     */
+    @Modifying
+    @Query(value = """
+            delete from revoked_token
+            where id in (select id from revoked_token where expires_at < :now limit :limit)
+            """, nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
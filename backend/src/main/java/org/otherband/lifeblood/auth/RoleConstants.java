@@ -8,6 +8,7 @@ public final class RoleConstants {
 
     public static final String HAS_VOLUNTEER_ROLE = "hasRole('VOLUNTEER')";
     public static final String HAS_DOCTOR_ROLE = "hasRole('DOCTOR')";
+    public static final String IS_AUTHENTICATED = "isAuthenticated()";
     public static final String ALLOW_ALL = "permitAll()";
 
 }
@@ -1,5 +1,6 @@
 package org.otherband.lifeblood.auth;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -20,6 +21,14 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder(strength);
     }
 
+    @Bean(destroyMethod = "close")
+    public PasswordHasher passwordHasher(PasswordEncoder passwordEncoder,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${app.security.password.hashing.threads}") int threads,
+                                         @Value("${app.security.password.hashing.queue.capacity}") int queueCapacity) {
+        return new PasswordHasher(passwordEncoder, threads, queueCapacity, meterRegistry);
+    }
+
     @Configuration
     public static class SecurityEnabledConfig {
         @Bean
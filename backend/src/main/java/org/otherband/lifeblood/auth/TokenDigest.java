@@ -0,0 +1,27 @@
+package org.otherband.lifeblood.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Identifies a token without keeping the token itself around.
+ */
+public final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+    /**
+     * @return the hex encoded SHA-256 digest of the token
+     */
+    public static String sha256(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.otherband.lifeblood.auth;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.otherband.lifeblood.TimeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access tokens revoked before their expiry, held in memory behind a Bloom filter and synced from the database.
+ */
+@Component
+public class TokenRevocationList {
+
+    /**
+     * Revocations committed on another node just before the previous sync may carry an earlier timestamp.
+     */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TimeService timeService;
+    private final int minCapacity;
+    private final double falsePositiveRate;
+    private final Map<String, LocalDateTime> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private LocalDateTime syncedAt;
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository,
+                               TimeService timeService,
+                               MeterRegistry meterRegistry,
+                               @Value("${jwt.revocation.filter.min.capacity}") int minCapacity,
+                               @Value("${jwt.revocation.filter.false.positive.rate}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.timeService = timeService;
+        this.minCapacity = minCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.syncedAt = timeService.now();
+        revokedTokenRepository.findByExpiresAtAfter(syncedAt)
+                .forEach(revokedToken -> revoked.put(revokedToken.getTokenId(), revokedToken.getExpiresAt()));
+        rebuild();
+        meterRegistry.gaugeMapSize("auth.revoked.tokens", List.of(), revoked);
+    }
+
+    /**
+     * @param tokenId null for tokens issued without an id, which cannot be revoked
+     */
+    public boolean isRevoked(String tokenId) {
+        return tokenId != null && filter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Refuses the token from now on, on this node right away and on the others from their next sync.
+     */
+    public void revoke(JwtPrincipal principal) {
+        if (principal.tokenId() == null || revoked.containsKey(principal.tokenId())) {
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(principal.expiresAt(), timeService.getZoneId());
+        try {
+            revokedTokenRepository.save(RevokedTokenEntity.builder()
+                    .tokenId(principal.tokenId())
+                    .subject(principal.subject())
+                    .expiresAt(expiresAt)
+                    .revokedAt(timeService.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent logout with the same token got there first
+        }
+        add(principal.tokenId(), expiresAt);
+    }
+
+    /**
+     * Picks up tokens revoked on other nodes and forgets the ones that have expired since.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync.fixed.delay.milli.seconds}")
+    public void sync() {
+        LocalDateTime now = timeService.now();
+        List<RevokedTokenEntity> recent = revokedTokenRepository.findByRevokedAtAfter(syncedAt.minus(SYNC_OVERLAP));
+        synchronized (this) {
+            recent.forEach(revokedToken -> add(revokedToken.getTokenId(), revokedToken.getExpiresAt()));
+            if (revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now))) {
+                rebuild();
+            }
+            syncedAt = now;
+        }
+    }
+
+    private synchronized void add(String tokenId, LocalDateTime expiresAt) {
+        if (revoked.put(tokenId, expiresAt) != null) {
+            return;
+        }
+        if (revoked.size() > filter.expectedInsertions()) {
+            rebuild();
+        } else {
+            filter.put(tokenId);
+        }
+    }
+
+    /**
+     * Builds the filter aside and swaps it in, readers keep using the previous one meanwhile.
+     */
+    private synchronized void rebuild() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(minCapacity, revoked.size() * 2), falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+}
@@ -0,0 +1,80 @@
+package org.otherband.lifeblood.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.otherband.lifeblood.TimeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Principals of recently verified tokens, keyed by token digest and never handed out past the token's expiry.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final boolean enabled;
+    private final TimeService timeService;
+    private final Cache<String, JwtPrincipal> cache;
+
+    public VerifiedTokenCache(@Value("${jwt.token.cache.enabled}") boolean enabled,
+                              @Value("${jwt.token.cache.max.size}") long maxSize,
+                              TimeService timeService,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.timeService = timeService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, JwtPrincipal>creating((digest, principal) -> untilExpiry(principal)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified.tokens");
+    }
+
+    /**
+     * @param verifier called on a miss, its exceptions are passed on
+     * @return the principal of the token, from the cache when it was verified before
+     */
+    public JwtPrincipal verify(String token, Function<String, JwtPrincipal> verifier) {
+        if (!enabled) {
+            return verifier.apply(token);
+        }
+        String digest = TokenDigest.sha256(token);
+        JwtPrincipal principal = cache.getIfPresent(digest);
+        if (principal != null && principal.expiresAt().isAfter(now())) {
+            return principal;
+        }
+        principal = verifier.apply(token);
+        cache.put(digest, principal);
+        return principal;
+    }
+
+    /**
+     * Forgets the token, so its next use is verified again.
+     */
+    public void invalidate(String token) {
+        cache.invalidate(TokenDigest.sha256(token));
+    }
+
+    /**
+     * Forgets every token issued to the subject, for when their access changes.
+     */
+    public void invalidateSubject(String subject) {
+        cache.asMap().values().removeIf(principal -> subject.equals(principal.subject()));
+    }
+
+    private Duration untilExpiry(JwtPrincipal principal) {
+        Duration remaining = Duration.between(now(), principal.expiresAt());
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private Instant now() {
+        return timeService.now().atZone(timeService.getZoneId()).toInstant();
+    }
+}
@@ -0,0 +1,26 @@
+package org.otherband.lifeblood.jobs;
+
+import org.otherband.lifeblood.alert.AlertFanOutService;
+import org.springframework.scheduling.annotation.Scheduled;
+
+public class AsyncFanOutService {
+    private final AlertFanOutService alertFanOutService;
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    public AsyncFanOutService(AlertFanOutService alertFanOutService) {
+        this.alertFanOutService = alertFanOutService;
+    }
+
+    /**
+     * Fans out right away when an alert is created, the fixed delay only covers alerts whose wake-up was lost.
+     */
+    public void wakeUp() {
+        fanOutAlerts();
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.fan.out.fixed.delay.milli.seconds}")
+    public void fanOutAlerts() {
+        singleFlight.run(alertFanOutService::fanOutPendingAlerts);
+    }
+
+}
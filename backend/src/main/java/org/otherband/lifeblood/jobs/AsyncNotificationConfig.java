@@ -0,0 +1,19 @@
+package org.otherband.lifeblood.jobs;
+
+import java.time.Duration;
+
+/**
+ * @param batchSize       rows claimed per channel in one round, shared between the priority lanes
+ * @param minPollInterval delay between polls while there is work, and the scheduler tick
+ * @param maxPollInterval longest delay the idle backoff grows to
+ * @param retryPolicy     when rows whose send failed are tried again
+ */
+public record AsyncNotificationConfig(
+        String nodeId,
+        Duration leaseDuration,
+        int batchSize,
+        Duration minPollInterval,
+        Duration maxPollInterval,
+        RetryPolicy retryPolicy
+) {
+}
@@ -1,45 +1,360 @@
 package org.otherband.lifeblood.jobs;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.otherband.lifeblood.TimeService;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.notifications.DeliveryResult;
+import org.otherband.lifeblood.notifications.DeliveryResult.Outcome;
+import org.otherband.lifeblood.notifications.NotificationPriority;
 import org.otherband.lifeblood.notifications.NotificationSender;
+import org.otherband.lifeblood.notifications.OutboxRepository;
+import org.otherband.lifeblood.notifications.OutboxRow;
+import org.otherband.lifeblood.notifications.handoff.OutboxHandOff;
+import org.otherband.lifeblood.notifications.push.FirebaseNotificationSender;
+import org.otherband.lifeblood.notifications.push.PushNotification;
 import org.otherband.lifeblood.notifications.push.PushNotificationRepository;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
+import org.otherband.lifeblood.volunteer.VolunteerJpaRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Slf4j
 public class AsyncNotificationService {
+    private static final int TOTAL_WEIGHT = Arrays.stream(NotificationPriority.values())
+            .mapToInt(NotificationPriority::getWeight)
+            .sum();
+
     private final NotificationSender notificationSender;
     private final WhatsAppMessageRepository whatsAppMessageRepository;
     private final PushNotificationRepository pushNotificationRepository;
+    private final VolunteerJpaRepository volunteerJpaRepository;
+    private final OutboxHandOff handOff;
+    private final TimeService timeService;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncNotificationConfig config;
+    private final Outbox<WhatsAppMessageEntity> whatsAppOutbox;
+    private final Outbox<PushNotification> pushOutbox;
     private final AtomicLong notificationsSent = new AtomicLong();
+    private final AtomicLong pollIntervalMillis;
+    private final AtomicBoolean wokenUp = new AtomicBoolean();
+    private final SingleFlight singleFlight = new SingleFlight();
+    private LocalDateTime nextPollAt = LocalDateTime.MIN;
 
 
     public AsyncNotificationService(NotificationSender notificationSender,
                                     WhatsAppMessageRepository whatsAppMessageRepository,
-                                    PushNotificationRepository pushNotificationRepository) {
+                                    PushNotificationRepository pushNotificationRepository,
+                                    VolunteerJpaRepository volunteerJpaRepository,
+                                    OutboxHandOff handOff,
+                                    NotificationDispatcher dispatcher,
+                                    TimeService timeService,
+                                    TransactionTemplate transactionTemplate,
+                                    MeterRegistry meterRegistry,
+                                    AsyncNotificationConfig config) {
         this.notificationSender = notificationSender;
         this.whatsAppMessageRepository = whatsAppMessageRepository;
         this.pushNotificationRepository = pushNotificationRepository;
+        this.volunteerJpaRepository = volunteerJpaRepository;
+        this.handOff = handOff;
+        this.timeService = timeService;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        this.pollIntervalMillis = new AtomicLong(config.minPollInterval().toMillis());
+        Gauge.builder("notifications.poll.interval", pollIntervalMillis, AtomicLong::get)
+                .description("Delay before the next outbox poll, grows while the outbox is idle")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("notifications.poll.batch.size", config, AsyncNotificationConfig::batchSize)
+                .description("Rows claimed per channel in one polling round")
+                .register(meterRegistry);
+        this.whatsAppOutbox = new Outbox<>(NotificationChannel.WHATSAPP_MESSAGES,
+                lanes("whatsapp", meterRegistry),
+                whatsAppMessageRepository,
+                whatsAppMessages -> dispatcher.dispatchAsync(NotificationChannel.WHATSAPP_MESSAGES, whatsAppMessages,
+                        notificationSender::sendWhatsAppMessageAsync),
+                new long[config.batchSize()],
+                whatsAppMessages -> {
+                });
+        this.pushOutbox = new Outbox<>(NotificationChannel.PUSH_NOTIFICATIONS,
+                lanes("push", meterRegistry),
+                pushNotificationRepository,
+                pushNotifications -> dispatcher.dispatch(NotificationChannel.PUSH_NOTIFICATIONS, pushNotifications,
+                        FirebaseNotificationSender.MAX_MULTICAST_TOKENS,
+                        notificationSender::sendPushNotifications),
+                new long[config.batchSize()],
+                this::clearDeadTokens);
+    }
+
+    /**
+     * Polls right away, however long the idle backoff has grown, for rows that were just written.
+     */
+    public void wakeUp() {
+        wokenUp.set(true);
+        singleFlight.run(this::poll);
     }
 
-    @Scheduled(fixedDelayString = "${notifications.fixed.delay.milli.seconds}")
+    /**
+     * Runs every {@code minPollInterval} but only polls once the current interval has passed. A poll keeps
+     * claiming rounds while they come back full; a poll that finds nothing doubles the interval up to
+     * {@code maxPollInterval}, and one that finds work resets it. Writers normally wake the service up, so
+     * the interval only bounds how long rows whose wake-up was lost can wait.
+     */
+    @Scheduled(fixedDelayString = "${notifications.poll.min.interval.milli.seconds}")
     public void sendNotifications() {
+        singleFlight.run(this::poll);
+    }
+
+    private void poll() {
+        if (!wokenUp.getAndSet(false) && timeService.now().isBefore(nextPollAt)) {
+            return;
+        }
         notificationsSent.set(0);
-        whatsAppMessageRepository.findTop100BySentIsFalseOrderByCreationDateAsc()
-                .forEach(whatsAppMessage -> {
-                    notificationSender.sendWhatsAppMessage(whatsAppMessage);
-                    notificationsSent.getAndIncrement();
-                });
-        pushNotificationRepository.findTop100BySentIsFalseOrderByCreationDateAsc()
-                .forEach(pushNotification -> {
-                    notificationSender.sendPushNotification(pushNotification);
-                    notificationsSent.getAndIncrement();
-                });
+        long claimed = 0;
+        Round whatsAppRound;
+        Round pushRound;
+        do {
+            whatsAppRound = drain(whatsAppOutbox);
+            pushRound = drain(pushOutbox);
+            claimed += whatsAppRound.claimed() + pushRound.claimed();
+        } while (whatsAppRound.moreWork() || pushRound.moreWork());
+        long interval = claimed == 0
+                ? Math.min(pollIntervalMillis.get() * 2, config.maxPollInterval().toMillis())
+                : config.minPollInterval().toMillis();
+        pollIntervalMillis.set(interval);
+        nextPollAt = timeService.now().plus(Duration.ofMillis(interval));
         if (notificationsSent.get() > 0) {
             log.info("[{}] sent [{}] notifications successfully.", this.getClass(), notificationsSent.get());
         }
     }
 
+    /**
+     * Rows handed off since the last round go first, claimed by id without searching the outbox. Each lane then
+     * takes its weighted share of the poll budget, highest priority first. Budget left over by lanes that ran
+     * dry is then handed out again in priority order. Rows whose send failed or was throttled are retried later,
+     * and their lane is not polled again in the same round. Nothing is claimed while the sender reports the
+     * channel unavailable.
+     */
+    private <T extends OutboxRow> Round drain(Outbox<T> outbox) {
+        if (!notificationSender.isAvailable(outbox.channel())) {
+            return new Round(0, false);
+        }
+        int handedOff = handOff.drainTo(outbox.channel(), outbox.handedOffIds());
+        List<T> handedOffRows = handedOff == 0 ? List.of() : claimHandedOff(outbox, handedOff);
+        boolean failures = !handedOffRows.isEmpty() && send(outbox, handedOffRows);
+        int remaining = config.batchSize();
+        Set<NotificationPriority> drained = EnumSet.noneOf(NotificationPriority.class);
+        for (boolean weightedPass : new boolean[]{true, false}) {
+            for (NotificationPriority priority : NotificationPriority.values()) {
+                int limit = Math.min(remaining, weightedPass ? share(priority) : remaining);
+                if (limit == 0 || drained.contains(priority)) {
+                    continue;
+                }
+                List<T> notifications = claim(outbox.repository(), priority, limit);
+                boolean failed = send(outbox, notifications);
+                failures |= failed;
+                if (notifications.size() < limit || failed) {
+                    drained.add(priority);
+                }
+                remaining -= notifications.size();
+            }
+        }
+        int claimed = config.batchSize() - remaining;
+        // failures point at a struggling provider, leave the rest of the outbox to the next poll
+        boolean moreWork = (claimed == config.batchSize() || handedOff == outbox.handedOffIds().length) && !failures;
+        return new Round(handedOffRows.size() + claimed, moreWork);
+    }
+
+    /**
+     * Sends claimed rows and records their outcomes.
+     *
+     * @return whether any of them failed or was throttled
+     */
+    private <T extends OutboxRow> boolean send(Outbox<T> outbox, List<T> notifications) {
+        LocalDateTime now = timeService.now();
+        notifications.forEach(notification -> outbox.lanes().get(notification.getPriority()).waitTime()
+                .record(Duration.between(notification.getCreationDate(), now)));
+        List<DeliveryResult> results = outbox.send().apply(notifications);
+        recordResults(outbox, notifications, results);
+        notificationsSent.addAndGet(results.stream().filter(DeliveryResult::isSent).count());
+        return results.stream()
+                .anyMatch(result -> result.outcome() == Outcome.FAILED || result.outcome() == Outcome.THROTTLED);
+    }
+
+    /**
+     * Leases the first {@code count} handed off rows that are still due, highest priority first. Rows sent or
+     * claimed in the meantime, by a poll of this node or another one, are skipped. The ids were drained into the
+     * outbox's scratch array, only touched under the single-flight poll; they are boxed here because JPA binds
+     * an {@code in} list from a collection.
+     */
+    private <T extends OutboxRow> List<T> claimHandedOff(Outbox<T> outbox, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(outbox.handedOffIds()[i]);
+        }
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = timeService.now();
+            List<T> notifications = new ArrayList<>(outbox.repository().findClaimableByIdIn(ids, now));
+            if (!notifications.isEmpty()) {
+                outbox.repository().claim(notifications.stream().map(OutboxRow::getId).toList(),
+                        config.nodeId(),
+                        now.plus(config.leaseDuration()));
+            }
+            notifications.sort(Comparator.comparing(OutboxRow::getPriority));
+            return notifications;
+        });
+    }
+
+    /**
+     * Leases up to {@code limit} rows of a lane to this node. Rows leased by a node that died become claimable
+     * again once their lease runs out.
+     */
+    private <T extends OutboxRow> List<T> claim(OutboxRepository<T> repository, NotificationPriority priority, int limit) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = timeService.now();
+            List<T> notifications = repository.findClaimable(priority, now, Limit.of(limit));
+            if (!notifications.isEmpty()) {
+                repository.claim(notifications.stream().map(OutboxRow::getId).toList(),
+                        config.nodeId(),
+                        now.plus(config.leaseDuration()));
+            }
+            return notifications;
+        });
+    }
+
+    /**
+     * Writes the outcomes of a batch with one update per distinct result, all in a single transaction. Failed
+     * rows are pushed back by the retry policy's backoff, rows failing with the same error on the same attempt
+     * sharing one retry time. Throttled rows go back as they were, due again once the provider has capacity.
+     * Permanent failures, and rows out of attempts, are dead-lettered. Rows sent to a token the provider no
+     * longer knows also take down the token and everything else still queued for it.
+     */
+    private <T extends OutboxRow> void recordResults(Outbox<T> outbox,
+                                                     List<T> notifications,
+                                                     List<DeliveryResult> results) {
+        OutboxRepository<T> repository = outbox.repository();
+        RetryPolicy retryPolicy = config.retryPolicy();
+        Map<Update, List<Long>> idsByUpdate = new LinkedHashMap<>();
+        List<T> invalidTokens = new ArrayList<>();
+        for (int i = 0; i < notifications.size(); i++) {
+            DeliveryResult result = results.get(i);
+            if (result.outcome() == Outcome.INVALID_TOKEN) {
+                invalidTokens.add(notifications.get(i));
+            }
+            int attempts = notifications.get(i).getAttempts() + 1;
+            if (result.outcome() == Outcome.FAILED && retryPolicy.isExhausted(attempts)) {
+                result = DeliveryResult.rejected("Gave up after %d attempts: %s".formatted(attempts, result.error()));
+            }
+            Update update = new Update(result, result.outcome() == Outcome.FAILED ? attempts : 0);
+            idsByUpdate.computeIfAbsent(update, key -> new ArrayList<>()).add(notifications.get(i).getId());
+        }
+        LocalDateTime now = timeService.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            idsByUpdate.forEach((update, ids) -> {
+                DeliveryResult result = update.result();
+                switch (result.outcome()) {
+                    case SENT -> repository.markSent(ids);
+                    case FAILED -> repository.markFailed(ids, result.error(), now.plus(retryPolicy.backoff(update.attempts())));
+                    case THROTTLED -> repository.requeue(ids, now.plus(result.retryAfter()));
+                    case REJECTED, INVALID_TOKEN -> {
+                        log.warn("Dead-lettering notifications {}: {}", ids, result.error());
+                        repository.markDeadLettered(ids, result.error());
+                    }
+                }
+            });
+            if (!invalidTokens.isEmpty()) {
+                outbox.onInvalidTokens().accept(invalidTokens);
+            }
+        });
+    }
+
+    /**
+     * Clears the tokens from the volunteers holding them and cancels the rows still queued for them, so neither
+     * fan-out nor the next polls spend any more work on devices that are gone.
+     */
+    private void clearDeadTokens(List<PushNotification> pushNotifications) {
+        List<String> tokens = pushNotifications.stream().map(PushNotification::getUserToken).distinct().toList();
+        int volunteers = volunteerJpaRepository.clearPushNotificationTokens(tokens);
+        int cancelled = pushNotificationRepository.cancelForTokens(tokens, "Push token is no longer registered");
+        log.info("Cleared [{}] dead push tokens from [{}] volunteers, cancelled [{}] queued notifications",
+                tokens.size(), volunteers, cancelled);
+    }
+
+    /**
+     * Counts the unsent rows of every lane for the queue depth gauges. Runs on a slow schedule of its own, since
+     * polls can run every {@code minPollInterval} and the counts scan the outbox.
+     */
+    @Scheduled(fixedDelayString = "${notifications.queue.depth.refresh.milli.seconds}")
+    public void updateQueueDepths() {
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            whatsAppOutbox.lanes().get(priority).depth()
+                    .set(whatsAppMessageRepository.countBySentIsFalseAndDeadLetteredIsFalseAndPriority(priority));
+            pushOutbox.lanes().get(priority).depth()
+                    .set(pushNotificationRepository.countBySentIsFalseAndDeadLetteredIsFalseAndPriority(priority));
+        }
+    }
+
+    private int share(NotificationPriority priority) {
+        return Math.max(1, config.batchSize() * priority.getWeight() / TOTAL_WEIGHT);
+    }
+
+    private static Map<NotificationPriority, Lane> lanes(String channel, MeterRegistry meterRegistry) {
+        Map<NotificationPriority, Lane> lanes = new EnumMap<>(NotificationPriority.class);
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            AtomicLong depth = new AtomicLong();
+            Gauge.builder("notifications.queue.depth", depth, AtomicLong::get)
+                    .description("Unsent outbox rows as of the last refresh")
+                    .tag("channel", channel)
+                    .tag("priority", priority.name())
+                    .register(meterRegistry);
+            Timer waitTime = Timer.builder("notifications.queue.wait")
+                    .description("Time between an outbox row being written and picked up for sending")
+                    .tag("channel", channel)
+                    .tag("priority", priority.name())
+                    .register(meterRegistry);
+            lanes.put(priority, new Lane(depth, waitTime));
+        }
+        return lanes;
+    }
+
+    private record Lane(AtomicLong depth, Timer waitTime) {
+    }
+
+    private record Round(int claimed, boolean moreWork) {
+    }
+
+    /**
+     * @param attempts attempts made including this one, only kept for failures since it sets their backoff
+     */
+    private record Update(DeliveryResult result, int attempts) {
+    }
+
+    private record Outbox<T extends OutboxRow>(NotificationChannel channel,
+                                               Map<NotificationPriority, Lane> lanes,
+                                               OutboxRepository<T> repository,
+                                               Function<List<T>, List<DeliveryResult>> send,
+                                               long[] handedOffIds,
+                                               Consumer<List<T>> onInvalidTokens) {
+    }
+
 }
@@ -0,0 +1,66 @@
+package org.otherband.lifeblood.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.otherband.lifeblood.TimeService;
+import org.otherband.lifeblood.auth.RefreshTokenRepository;
+import org.otherband.lifeblood.auth.RevokedTokenRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Deletes refresh tokens and access token revocations past their expiry, batch by batch, each batch in its own
+ * transaction.
+ */
+@Slf4j
+public class ExpiredTokenSweeper {
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TimeService timeService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+
+    public ExpiredTokenSweeper(RefreshTokenRepository refreshTokenRepository,
+                               RevokedTokenRepository revokedTokenRepository,
+                               TimeService timeService,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               int batchSize) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.timeService = timeService;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.token.sweep.fixed.delay.milli.seconds}")
+    public void purgeExpired() {
+        LocalDateTime now = timeService.now();
+        purge("refresh", limit -> refreshTokenRepository.deleteExpired(now, limit));
+        purge("revoked", limit -> revokedTokenRepository.deleteExpired(now, limit));
+    }
+
+    private void purge(String kind, BatchDelete batchDelete) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = Objects.requireNonNull(transactionTemplate.execute(status -> batchDelete.delete(batchSize)));
+            total += deleted;
+        } while (deleted == batchSize);
+        meterRegistry.counter("auth.tokens.purged", "kind", kind).increment(total);
+        if (total > 0) {
+            log.info("Purged [{}] expired {} tokens", total, kind);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchDelete {
+        int delete(int limit);
+    }
+
+}
@@ -1,11 +1,24 @@
 package org.otherband.lifeblood.jobs;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.otherband.lifeblood.TimeService;
+import org.otherband.lifeblood.alert.AlertFanOutService;
+import org.otherband.lifeblood.auth.RefreshTokenRepository;
+import org.otherband.lifeblood.auth.RevokedTokenRepository;
 import org.otherband.lifeblood.notifications.NotificationSender;
+import org.otherband.lifeblood.notifications.handoff.OutboxHandOff;
 import org.otherband.lifeblood.notifications.push.PushNotificationRepository;
+import org.otherband.lifeblood.notifications.wakeup.WakeUpChannel;
+import org.otherband.lifeblood.notifications.wakeup.WakeUpSignal;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
+import org.otherband.lifeblood.volunteer.VolunteerJpaRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
 
 @Configuration
 @ConditionalOnProperty(name = "app.config.jobs.enabled", havingValue = "true")
@@ -14,10 +27,69 @@ public class JobsConfig {
     @Bean
     public AsyncNotificationService asyncNotificationService(NotificationSender notificationSender,
                                                              WhatsAppMessageRepository whatsAppMessageRepository,
-                                                             PushNotificationRepository pushNotificationRepository) {
-        return new AsyncNotificationService(notificationSender,
+                                                             PushNotificationRepository pushNotificationRepository,
+                                                             VolunteerJpaRepository volunteerJpaRepository,
+                                                             OutboxHandOff outboxHandOff,
+                                                             NotificationDispatcher notificationDispatcher,
+                                                             TimeService timeService,
+                                                             TransactionTemplate transactionTemplate,
+                                                             MeterRegistry meterRegistry,
+                                                             WakeUpSignal wakeUpSignal,
+                                                             @Value("${app.config.node.id}") String nodeId,
+                                                             @Value("${notifications.claim.lease.seconds}") long leaseSeconds,
+                                                             @Value("${notifications.batch.size}") int batchSize,
+                                                             @Value("${notifications.poll.min.interval.milli.seconds}") long minPollInterval,
+                                                             @Value("${notifications.poll.max.interval.milli.seconds}") long maxPollInterval,
+                                                             @Value("${notifications.retry.max.attempts}") int maxAttempts,
+                                                             @Value("${notifications.retry.initial.backoff.seconds}") long initialBackoff,
+                                                             @Value("${notifications.retry.max.backoff.seconds}") long maxBackoff) {
+        AsyncNotificationService asyncNotificationService = new AsyncNotificationService(notificationSender,
                 whatsAppMessageRepository,
-                pushNotificationRepository);
+                pushNotificationRepository,
+                volunteerJpaRepository,
+                outboxHandOff,
+                notificationDispatcher,
+                timeService,
+                transactionTemplate,
+                meterRegistry,
+                new AsyncNotificationConfig(nodeId,
+                        Duration.ofSeconds(leaseSeconds),
+                        batchSize,
+                        Duration.ofMillis(minPollInterval),
+                        Duration.ofMillis(maxPollInterval),
+                        new RetryPolicy(maxAttempts, Duration.ofSeconds(initialBackoff), Duration.ofSeconds(maxBackoff))));
+        wakeUpSignal.subscribe(WakeUpChannel.OUTBOX, asyncNotificationService::wakeUp);
+        outboxHandOff.onPublish(asyncNotificationService::wakeUp);
+        return asyncNotificationService;
+    }
+
+    @Bean(destroyMethod = "close")
+    public NotificationDispatcher notificationDispatcher(
+            @Value("${notifications.dispatcher.virtual.threads.enabled}") boolean virtualThreadsEnabled,
+            @Value("${notifications.dispatcher.whatsapp.concurrency}") int whatsAppConcurrency,
+            @Value("${notifications.dispatcher.push.concurrency}") int pushConcurrency) {
+        if (virtualThreadsEnabled) {
+            return NotificationDispatcher.virtualThreads(whatsAppConcurrency, pushConcurrency);
+        }
+        return NotificationDispatcher.sequential();
+    }
+
+    @Bean
+    public AsyncFanOutService asyncFanOutService(AlertFanOutService alertFanOutService, WakeUpSignal wakeUpSignal) {
+        AsyncFanOutService asyncFanOutService = new AsyncFanOutService(alertFanOutService);
+        wakeUpSignal.subscribe(WakeUpChannel.ALERTS, asyncFanOutService::wakeUp);
+        return asyncFanOutService;
+    }
+
+    @Bean
+    public ExpiredTokenSweeper expiredTokenSweeper(RefreshTokenRepository refreshTokenRepository,
+                                                   RevokedTokenRepository revokedTokenRepository,
+                                                   TimeService timeService,
+                                                   TransactionTemplate transactionTemplate,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${jwt.token.sweep.batch.size}") int batchSize) {
+        return new ExpiredTokenSweeper(refreshTokenRepository, revokedTokenRepository, timeService,
+                transactionTemplate, meterRegistry, batchSize);
     }
 
 }
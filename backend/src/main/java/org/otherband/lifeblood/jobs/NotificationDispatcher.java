@@ -0,0 +1,168 @@
+package org.otherband.lifeblood.jobs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.notifications.DeliveryResult;
+import org.otherband.lifeblood.notifications.DeliveryResult.Outcome;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sends outbox rows in batches, on the calling thread or on virtual threads with a per-channel limit on batches
+ * in flight.
+ */
+@Slf4j
+public class NotificationDispatcher implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Map<NotificationChannel, Semaphore> permits = new EnumMap<>(NotificationChannel.class);
+
+    private NotificationDispatcher(ExecutorService executor, int whatsAppConcurrency, int pushConcurrency) {
+        this.executor = executor;
+        this.permits.put(NotificationChannel.WHATSAPP_MESSAGES, new Semaphore(whatsAppConcurrency));
+        this.permits.put(NotificationChannel.PUSH_NOTIFICATIONS, new Semaphore(pushConcurrency));
+    }
+
+    public static NotificationDispatcher sequential() {
+        return new NotificationDispatcher(null, 1, 1);
+    }
+
+    public static NotificationDispatcher virtualThreads(int whatsAppConcurrency, int pushConcurrency) {
+        return new NotificationDispatcher(Executors.newVirtualThreadPerTaskExecutor(),
+                whatsAppConcurrency,
+                pushConcurrency);
+    }
+
+    /**
+     * Sends each notification on its own, on the dispatcher's threads.
+     *
+     * @return one result per notification, in the order they were given
+     */
+    public <T> List<DeliveryResult> dispatchEach(NotificationChannel channel, List<T> notifications, Consumer<T> send) {
+        return dispatchAsync(channel, notifications, notification -> executor == null
+                ? CompletableFuture.runAsync(() -> send.accept(notification), Runnable::run)
+                : CompletableFuture.runAsync(() -> send.accept(notification), executor));
+    }
+
+    /**
+     * Starts a non-blocking send per notification, with at most one request per permit of the channel in
+     * flight. The calling thread waits for a permit before starting the next send, and for all of them to
+     * complete before returning.
+     *
+     * @return one result per notification, in the order they were given
+     */
+    public <T> List<DeliveryResult> dispatchAsync(NotificationChannel channel,
+                                                  List<T> notifications,
+                                                  Function<T, CompletableFuture<?>> send) {
+        Semaphore semaphore = permits.get(channel);
+        List<CompletableFuture<DeliveryResult>> results = new ArrayList<>(notifications.size());
+        for (T notification : notifications) {
+            semaphore.acquireUninterruptibly();
+            CompletableFuture<?> sending;
+            try {
+                sending = send.apply(notification);
+            } catch (Exception e) {
+                sending = CompletableFuture.failedFuture(e);
+            }
+            results.add(sending.handle((ignored, failure) -> {
+                semaphore.release();
+                if (failure == null) {
+                    return DeliveryResult.sent();
+                }
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure;
+                DeliveryResult result = DeliveryResult.of(cause);
+                if (result.outcome() == Outcome.THROTTLED) {
+                    log.debug("Throttled notification [{}]: {}", notification, cause.getMessage());
+                } else {
+                    log.error("Failed to send notification [{}]", notification, cause);
+                }
+                return result;
+            }));
+        }
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Sends the notifications in consecutive batches of up to {@code batchSize}, each batch taking one permit
+     * of the channel. A batch that throws fails all of its notifications, permanently if it threw a
+     * {@link org.otherband.lifeblood.notifications.PermanentDeliveryException}.
+     *
+     * @return one result per notification, in the order they were given
+     */
+    public <T> List<DeliveryResult> dispatch(NotificationChannel channel,
+                                             List<T> notifications,
+                                             int batchSize,
+                                             Function<List<T>, List<DeliveryResult>> send) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int from = 0; from < notifications.size(); from += batchSize) {
+            batches.add(notifications.subList(from, Math.min(from + batchSize, notifications.size())));
+        }
+        List<DeliveryResult> results = new ArrayList<>(notifications.size());
+        if (executor == null) {
+            batches.forEach(batch -> results.addAll(trySend(batch, send)));
+            return results;
+        }
+        Semaphore semaphore = permits.get(channel);
+        List<Future<List<DeliveryResult>>> futures = batches.stream()
+                .map(batch -> executor.submit(() -> {
+                    semaphore.acquire();
+                    try {
+                        return trySend(batch, send);
+                    } finally {
+                        semaphore.release();
+                    }
+                }))
+                .toList();
+        for (int i = 0; i < batches.size(); i++) {
+            results.addAll(await(futures.get(i), batches.get(i)));
+        }
+        return results;
+    }
+
+    private static <T> List<DeliveryResult> trySend(List<T> batch, Function<List<T>, List<DeliveryResult>> send) {
+        try {
+            return send.apply(batch);
+        } catch (Exception e) {
+            log.error("Failed to send notifications [{}]", batch, e);
+            return failed(batch, e);
+        }
+    }
+
+    private static <T> List<DeliveryResult> await(Future<List<DeliveryResult>> future, List<T> batch) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(batch, e);
+        } catch (ExecutionException e) {
+            log.error("Notification send task failed", e.getCause());
+            return failed(batch, e.getCause());
+        }
+    }
+
+    private static <T> List<DeliveryResult> failed(List<T> batch, Throwable cause) {
+        return Collections.nCopies(batch.size(), DeliveryResult.of(cause));
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+}
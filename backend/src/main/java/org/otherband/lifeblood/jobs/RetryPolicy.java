@@ -0,0 +1,31 @@
+package org.otherband.lifeblood.jobs;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff for outbox rows whose send failed.
+ *
+ * @param maxAttempts    attempts after which a row that keeps failing is dead-lettered
+ * @param initialBackoff delay before the second attempt
+ * @param maxBackoff     longest delay the backoff grows to
+ */
+public record RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+
+    public boolean isExhausted(int attempts) {
+        return attempts >= maxAttempts;
+    }
+
+    /**
+     * Doubles the delay with every attempt, then picks a random point in its upper half so that rows failing
+     * together do not all come back together.
+     *
+     * @param attempts attempts made so far, at least one
+     */
+    public Duration backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        long backoffMillis = Math.min(initialBackoff.toMillis() << doublings, maxBackoff.toMillis());
+        long half = backoffMillis / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(backoffMillis - half + 1));
+    }
+}
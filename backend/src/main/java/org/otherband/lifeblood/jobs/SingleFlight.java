@@ -0,0 +1,28 @@
+package org.otherband.lifeblood.jobs;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs a job on one thread at a time. A caller arriving while the job runs does not wait for it: the running
+ * thread goes around once more when it is done, so work signalled in the meantime is never missed, and any
+ * number of such callers only add a single extra run.
+ */
+class SingleFlight {
+
+    private final Lock running = new ReentrantLock();
+    private final AtomicBoolean requested = new AtomicBoolean();
+
+    void run(Runnable job) {
+        requested.set(true);
+        while (requested.get() && running.tryLock()) {
+            try {
+                requested.set(false);
+                job.run();
+            } finally {
+                running.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.otherband.lifeblood.notifications;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling a provider after a run of failures, then lets a few trial calls through once the open duration
+ * has passed.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final String channel;
+    private final CircuitBreakerConfig config;
+    private final LongSupplier nanoTime;
+    private final Counter rejectedCalls;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int trialsStarted;
+    private int trialsSucceeded;
+    private long openUntil;
+
+    public CircuitBreaker(String channel, CircuitBreakerConfig config, MeterRegistry meterRegistry) {
+        this(channel, config, meterRegistry, System::nanoTime);
+    }
+
+    public CircuitBreaker(String channel, CircuitBreakerConfig config, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.channel = channel;
+        this.config = config;
+        this.nanoTime = nanoTime;
+        Gauge.builder("notifications.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("State of the channel's circuit breaker, 0 closed, 1 half open, 2 open")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        this.rejectedCalls = Counter.builder("notifications.circuit.rejected")
+                .description("Calls turned away without reaching the provider because the circuit was open")
+                .tag("channel", channel)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether a call may go through, and counts it as a trial while the circuit is half open. Every
+     * permitted call has to be followed by {@link #onSuccess()} or {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        moveToHalfOpenIfDue();
+        boolean permitted = switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> trialsStarted < config.halfOpenTrials();
+            case OPEN -> false;
+        };
+        if (!permitted) {
+            rejectedCalls.increment();
+        } else if (state == State.HALF_OPEN) {
+            trialsStarted++;
+        }
+        return permitted;
+    }
+
+    /**
+     * Whether calls could go through right now, without taking a trial.
+     */
+    public synchronized boolean isCallPermitted() {
+        moveToHalfOpenIfDue();
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> trialsStarted < config.halfOpenTrials();
+            case OPEN -> false;
+        };
+    }
+
+    /**
+     * @return how long until the circuit lets calls through again, zero unless it is open
+     */
+    public synchronized Duration retryAfter() {
+        return state == State.OPEN ? Duration.ofNanos(Math.max(0, openUntil - nanoTime.getAsLong())) : Duration.ZERO;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN && ++trialsSucceeded >= config.halfOpenTrials()) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= config.failureThreshold())) {
+            openUntil = nanoTime.getAsLong() + config.openDuration().toNanos();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void moveToHalfOpenIfDue() {
+        if (state == State.OPEN && nanoTime.getAsLong() >= openUntil) {
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+            transitionTo(State.HALF_OPEN);
+        }
+    }
+
+    private void transitionTo(State next) {
+        if (state != next) {
+            log.warn("[{}] circuit went from {} to {} after {} failures in a row", channel, state, next, consecutiveFailures);
+            state = next;
+        }
+    }
+}
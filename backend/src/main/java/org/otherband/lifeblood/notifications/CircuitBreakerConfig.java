@@ -0,0 +1,15 @@
+package org.otherband.lifeblood.notifications;
+
+import java.time.Duration;
+
+/**
+ * @param failureThreshold failed calls in a row that open the circuit
+ * @param openDuration     how long an open circuit turns calls away before letting trial calls through
+ * @param halfOpenTrials   trial calls let through at once, all of which have to succeed to close the circuit
+ */
+public record CircuitBreakerConfig(
+        int failureThreshold,
+        Duration openDuration,
+        int halfOpenTrials
+) {
+}
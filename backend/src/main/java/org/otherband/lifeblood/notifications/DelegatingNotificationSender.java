@@ -1,47 +1,150 @@
 package org.otherband.lifeblood.notifications;
 
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.generated.model.PushNotificationType;
+import org.otherband.lifeblood.notifications.DeliveryResult.Outcome;
 import org.otherband.lifeblood.notifications.push.FirebaseNotificationSender;
 import org.otherband.lifeblood.notifications.push.PushNotification;
-import org.otherband.lifeblood.notifications.push.PushNotificationRepository;
-import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageSender;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Sends each channel through its own circuit breaker.
+ */
 public class DelegatingNotificationSender implements NotificationSender {
 
     private final WhatsAppMessageSender whatsAppMessageSender;
     private final FirebaseNotificationSender firebaseNotificationSender;
-    private final PushNotificationRepository pushNotificationRepository;
-    private final WhatsAppMessageRepository whatsAppMessageRepository;
+    private final Map<NotificationChannel, CircuitBreaker> circuitBreakers;
 
     public DelegatingNotificationSender(WhatsAppMessageSender whatsAppMessageSender,
                                         FirebaseNotificationSender firebaseNotificationSender,
-                                        PushNotificationRepository pushNotificationRepository,
-                                        WhatsAppMessageRepository whatsAppMessageRepository) {
+                                        Map<NotificationChannel, CircuitBreaker> circuitBreakers) {
         this.whatsAppMessageSender = whatsAppMessageSender;
         this.firebaseNotificationSender = firebaseNotificationSender;
-        this.pushNotificationRepository = pushNotificationRepository;
-        this.whatsAppMessageRepository = whatsAppMessageRepository;
+        this.circuitBreakers = new EnumMap<>(circuitBreakers);
+    }
+
+    @Override
+    public boolean isAvailable(NotificationChannel channel) {
+        return circuitBreakers.get(channel).isCallPermitted();
     }
 
     @Override
     public void sendPushNotification(PushNotification pushNotification) {
         switch (pushNotification.getPushNotificationType()) {
-            case FIREBASE -> {
-                firebaseNotificationSender.send(pushNotification);
-                pushNotification.setSent(true);
-                pushNotificationRepository.save(pushNotification);
-            }
+            case FIREBASE -> guarded(NotificationChannel.PUSH_NOTIFICATIONS,
+                    () -> firebaseNotificationSender.send(pushNotification));
             case APPLE_PUSH_NOTIFICATION -> throw new UnsupportedOperationException("APN not yet implemented");
             case null -> throw new IllegalArgumentException("Push notification must have a type");
         }
     }
 
+    /**
+     * Firebase notifications go out as multicast messages, anything else is sent one by one. A multicast batch
+     * counts as one call to the circuit breaker, failed if none of its notifications got through.
+     */
+    @Override
+    public List<DeliveryResult> sendPushNotifications(List<PushNotification> pushNotifications) {
+        List<PushNotification> firebaseNotifications = pushNotifications.stream()
+                .filter(pushNotification -> pushNotification.getPushNotificationType() == PushNotificationType.FIREBASE)
+                .toList();
+        if (firebaseNotifications.size() == pushNotifications.size()) {
+            return sendAllFirebase(pushNotifications);
+        }
+        Iterator<DeliveryResult> firebaseResults = sendAllFirebase(firebaseNotifications).iterator();
+        Iterator<DeliveryResult> otherResults = NotificationSender.super.sendPushNotifications(pushNotifications.stream()
+                .filter(pushNotification -> pushNotification.getPushNotificationType() != PushNotificationType.FIREBASE)
+                .toList())
+                .iterator();
+        return pushNotifications.stream()
+                .map(pushNotification -> pushNotification.getPushNotificationType() == PushNotificationType.FIREBASE
+                        ? firebaseResults.next()
+                        : otherResults.next())
+                .toList();
+    }
+
     @Override
     public void sendWhatsAppMessage(WhatsAppMessageEntity whatsAppMessage) {
-        whatsAppMessageSender.send(whatsAppMessage);
-        whatsAppMessage.setSent(true);
-        whatsAppMessageRepository.save(whatsAppMessage);
+        guarded(NotificationChannel.WHATSAPP_MESSAGES, () -> whatsAppMessageSender.send(whatsAppMessage));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendWhatsAppMessageAsync(WhatsAppMessageEntity whatsAppMessage) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(NotificationChannel.WHATSAPP_MESSAGES);
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(circuitOpen(NotificationChannel.WHATSAPP_MESSAGES, circuitBreaker));
+        }
+        CompletableFuture<Void> sending;
+        try {
+            sending = whatsAppMessageSender.sendAsync(whatsAppMessage);
+        } catch (RuntimeException e) {
+            sending = CompletableFuture.failedFuture(e);
+        }
+        return sending.whenComplete((ignored, failure) -> record(circuitBreaker,
+                failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure));
+    }
+
+    private List<DeliveryResult> sendAllFirebase(List<PushNotification> pushNotifications) {
+        if (pushNotifications.isEmpty()) {
+            return List.of();
+        }
+        CircuitBreaker circuitBreaker = circuitBreakers.get(NotificationChannel.PUSH_NOTIFICATIONS);
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return Collections.nCopies(pushNotifications.size(),
+                    DeliveryResult.throttled(circuitBreaker.retryAfter()));
+        }
+        List<DeliveryResult> results;
+        try {
+            results = firebaseNotificationSender.sendAll(pushNotifications);
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+        if (results.stream().allMatch(result -> result.outcome() == Outcome.FAILED)) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        return results;
+    }
+
+    private void guarded(NotificationChannel channel, Runnable call) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(channel);
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw circuitOpen(channel, circuitBreaker);
+        }
+        try {
+            call.run();
+            circuitBreaker.onSuccess();
+        } catch (RuntimeException e) {
+            record(circuitBreaker, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Only failures worth retrying say something about the provider. Throttling and refused notifications
+     * mean it is up and answering.
+     */
+    private static void record(CircuitBreaker circuitBreaker, Throwable failure) {
+        if (failure != null && DeliveryResult.of(failure).outcome() == Outcome.FAILED) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    private static ThrottledDeliveryException circuitOpen(NotificationChannel channel, CircuitBreaker circuitBreaker) {
+        return new ThrottledDeliveryException("Circuit for [%s] is open".formatted(channel), circuitBreaker.retryAfter());
     }
 
 }
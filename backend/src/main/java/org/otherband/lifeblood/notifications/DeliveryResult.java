@@ -0,0 +1,85 @@
+package org.otherband.lifeblood.notifications;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Outcome of delivering a single outbox row.
+ *
+ * @param retryAfter how long the provider asked us to hold off, only set for {@link Outcome#THROTTLED}
+ */
+public record DeliveryResult(Outcome outcome, String error, Duration retryAfter) {
+
+    public enum Outcome {
+        SENT,
+        /**
+         * Worth retrying, the row stays in the outbox.
+         */
+        FAILED,
+        /**
+         * The provider is over its rate limit, the row goes back to the outbox without counting as an attempt.
+         */
+        THROTTLED,
+        /**
+         * The provider refused the row for good, retrying will not help.
+         */
+        REJECTED,
+        /**
+         * The recipient's push token is no longer valid, retrying will not help.
+         */
+        INVALID_TOKEN;
+
+        public boolean isPermanent() {
+            return this == REJECTED || this == INVALID_TOKEN;
+        }
+    }
+
+    /**
+     * Size of the outbox tables' last_error column.
+     */
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final DeliveryResult SENT = new DeliveryResult(Outcome.SENT, null, null);
+
+    public static DeliveryResult sent() {
+        return SENT;
+    }
+
+    public static DeliveryResult failed(String error) {
+        return new DeliveryResult(Outcome.FAILED, StringUtils.abbreviate(error, MAX_ERROR_LENGTH), null);
+    }
+
+    public static DeliveryResult rejected(String error) {
+        return new DeliveryResult(Outcome.REJECTED, StringUtils.abbreviate(error, MAX_ERROR_LENGTH), null);
+    }
+
+    /**
+     * Rounds the delay up to whole seconds so that rows throttled together share one result.
+     */
+    public static DeliveryResult throttled(Duration retryAfter) {
+        Duration wholeSeconds = retryAfter.truncatedTo(ChronoUnit.SECONDS);
+        return new DeliveryResult(Outcome.THROTTLED, null,
+                wholeSeconds.equals(retryAfter) ? retryAfter : wholeSeconds.plusSeconds(1));
+    }
+
+    /**
+     * Maps an exception thrown while sending to a failure, permanent or throttled only when the sender said so.
+     */
+    public static DeliveryResult of(Throwable cause) {
+        String error = String.valueOf(cause.getMessage());
+        return switch (cause) {
+            case PermanentDeliveryException permanent -> rejected(error);
+            case ThrottledDeliveryException throttled -> throttled(throttled.getRetryAfter());
+            default -> failed(error);
+        };
+    }
+
+    public static DeliveryResult invalidToken(String error) {
+        return new DeliveryResult(Outcome.INVALID_TOKEN, StringUtils.abbreviate(error, MAX_ERROR_LENGTH), null);
+    }
+
+    public boolean isSent() {
+        return outcome == Outcome.SENT;
+    }
+}
@@ -0,0 +1,40 @@
+package org.otherband.lifeblood.notifications;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Content shared by every recipient of a notification, rendered once and referenced by the delivery rows.
+ */
+@Entity(name = "notification_payload")
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPayloadEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_payload_seq")
+    @SequenceGenerator(name = "notification_payload_seq", sequenceName = "notification_payload_seq", allocationSize = 50)
+    private Long id;
+
+    private Long alertId;
+
+    private String pushTitle;
+    private String pushBody;
+
+    private String templateName;
+    @Column(columnDefinition = "varchar(1000) array")
+    private List<String> templateVariables;
+
+    @CreatedDate
+    private LocalDateTime creationDate;
+}
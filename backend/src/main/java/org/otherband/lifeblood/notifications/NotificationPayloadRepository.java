@@ -0,0 +1,11 @@
+package org.otherband.lifeblood.notifications;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface NotificationPayloadRepository extends JpaRepository<NotificationPayloadEntity, Long> {
+    Optional<NotificationPayloadEntity> findByAlertId(long alertId);
+}
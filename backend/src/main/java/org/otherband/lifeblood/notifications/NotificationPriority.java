@@ -0,0 +1,30 @@
+package org.otherband.lifeblood.notifications;
+
+import org.otherband.lifeblood.generated.model.AlertLevel;
+
+/**
+ * Dispatch lane of an outbox row, each lane taking a share of a poll's budget proportional to its weight.
+ */
+public enum NotificationPriority {
+    CRITICAL(6),
+    HIGH(3),
+    NORMAL(1);
+
+    private final int weight;
+
+    NotificationPriority(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public static NotificationPriority of(AlertLevel alertLevel) {
+        return switch (alertLevel) {
+            case LIFE_OR_DEATH -> CRITICAL;
+            case URGENT -> HIGH;
+            case ROUTINE -> NORMAL;
+        };
+    }
+}
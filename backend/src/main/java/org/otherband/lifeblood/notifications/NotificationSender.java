@@ -1,9 +1,52 @@
 package org.otherband.lifeblood.notifications;
 
+import org.otherband.lifeblood.generated.model.NotificationChannel;
 import org.otherband.lifeblood.notifications.push.PushNotification;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers outbox rows, throwing a {@link PermanentDeliveryException} when retrying a row will not help.
+ */
 public interface NotificationSender {
+    /**
+     * Whether the channel is worth sending to right now. Rows of a channel that is not are left in the outbox.
+     */
+    default boolean isAvailable(NotificationChannel channel) {
+        return true;
+    }
+
     void sendPushNotification(PushNotification pushNotification);
     void sendWhatsAppMessage(WhatsAppMessageEntity whatsAppMessage);
+
+    /**
+     * Sends without blocking the caller where the channel allows it. The future fails the way
+     * {@link #sendWhatsAppMessage} throws.
+     */
+    default CompletableFuture<Void> sendWhatsAppMessageAsync(WhatsAppMessageEntity whatsAppMessage) {
+        try {
+            sendWhatsAppMessage(whatsAppMessage);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return one result per notification, in the order they were given
+     */
+    default List<DeliveryResult> sendPushNotifications(List<PushNotification> pushNotifications) {
+        return pushNotifications.stream()
+                .map(pushNotification -> {
+                    try {
+                        sendPushNotification(pushNotification);
+                        return DeliveryResult.sent();
+                    } catch (Exception e) {
+                        return DeliveryResult.of(e);
+                    }
+                })
+                .toList();
+    }
 }
@@ -0,0 +1,84 @@
+package org.otherband.lifeblood.notifications;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queries shared by the per-recipient outbox tables: leasing rows to a node and recording delivery outcomes.
+ */
+@NoRepositoryBean
+public interface OutboxRepository<T extends OutboxRow> extends JpaRepository<T, Long> {
+
+    /**
+     * Lock timeout that Hibernate renders as {@code SKIP LOCKED}.
+     */
+    String SKIP_LOCKED = "-2";
+
+    /**
+     * Locks the rows of a lane that are due the longest, skipping rows locked by concurrent claims instead of
+     * waiting for them.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = SKIP_LOCKED))
+    @Query("select o from #{#entityName} o where o.sent = false and o.deadLettered = false and o.priority = :priority"
+            + " and o.nextAttemptAt <= :now order by o.nextAttemptAt")
+    List<T> findClaimable(@Param("priority") NotificationPriority priority, @Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Locks the given rows that are still due, for rows handed to this node directly instead of found by a poll.
+     * Rows another node has claimed or locked in the meantime are left out.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = AvailableSettings.JAKARTA_LOCK_TIMEOUT, value = SKIP_LOCKED))
+    @Query("select o from #{#entityName} o where o.id in :ids and o.sent = false and o.deadLettered = false"
+            + " and o.nextAttemptAt <= :now")
+    List<T> findClaimableByIdIn(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    long countBySentIsFalseAndDeadLetteredIsFalseAndPriority(NotificationPriority priority);
+
+    @Modifying
+    @Query("update #{#entityName} o set o.claimedBy = :claimedBy, o.claimedUntil = :claimedUntil,"
+            + " o.nextAttemptAt = :claimedUntil where o.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("claimedBy") String claimedBy,
+              @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    @Modifying
+    @Query("update #{#entityName} o set o.sent = true, o.lastError = null, o.attempts = o.attempts + 1,"
+            + " o.claimedBy = null, o.claimedUntil = null where o.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update #{#entityName} o set o.lastError = :error, o.attempts = o.attempts + 1,"
+            + " o.nextAttemptAt = :nextAttemptAt, o.claimedBy = null, o.claimedUntil = null where o.id in :ids")
+    int markFailed(@Param("ids") Collection<Long> ids,
+                   @Param("error") String error,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Hands rows back to the outbox without counting an attempt, for sends that never reached the provider
+     * or that it turned away for lack of capacity.
+     */
+    @Modifying
+    @Query("update #{#entityName} o set o.nextAttemptAt = :nextAttemptAt, o.claimedBy = null, o.claimedUntil = null"
+            + " where o.id in :ids")
+    int requeue(@Param("ids") Collection<Long> ids, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Modifying
+    @Query("update #{#entityName} o set o.deadLettered = true, o.lastError = :error, o.attempts = o.attempts + 1,"
+            + " o.claimedBy = null, o.claimedUntil = null where o.id in :ids")
+    int markDeadLettered(@Param("ids") Collection<Long> ids, @Param("error") String error);
+}
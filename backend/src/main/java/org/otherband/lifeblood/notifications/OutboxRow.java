@@ -0,0 +1,16 @@
+package org.otherband.lifeblood.notifications;
+
+import java.time.LocalDateTime;
+
+/**
+ * A row of one of the per-recipient outbox tables.
+ */
+public interface OutboxRow {
+    Long getId();
+
+    NotificationPriority getPriority();
+
+    int getAttempts();
+
+    LocalDateTime getCreationDate();
+}
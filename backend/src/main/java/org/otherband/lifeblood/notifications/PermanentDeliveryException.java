@@ -0,0 +1,11 @@
+package org.otherband.lifeblood.notifications;
+
+/**
+ * Thrown by a sender when the provider refused a notification in a way that retrying will not fix, such as a
+ * malformed request or an unknown recipient.
+ */
+public class PermanentDeliveryException extends RuntimeException {
+    public PermanentDeliveryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,13 +1,15 @@
 package org.otherband.lifeblood.notifications;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import org.otherband.lifeblood.ProfileConstants;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
 import org.otherband.lifeblood.notifications.push.FirebaseNotificationSender;
-import org.otherband.lifeblood.notifications.push.PushNotificationRepository;
-import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
+import org.otherband.lifeblood.notifications.whatsapp.RateLimitConfig;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageSender;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderConfig;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,10 +17,12 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.Resource;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @Profile(ProfileConstants.PRODUCTION)
@@ -33,12 +37,19 @@ public class ProdNotificationConfig {
     @Bean
     public NotificationSender notificationSender(FirebaseNotificationSender firebaseNotificationSender,
                                                  WhatsAppMessageSender whatsAppMessageSender,
-                                                 PushNotificationRepository pushNotificationRepository,
-                                                 WhatsAppMessageRepository whatsAppMessageRepository) {
+                                                 MeterRegistry meterRegistry,
+                                                 @Value("${notifications.circuit.breaker.failure.threshold}") int failureThreshold,
+                                                 @Value("${notifications.circuit.breaker.open.seconds}") long openSeconds,
+                                                 @Value("${notifications.circuit.breaker.half.open.trials}") int halfOpenTrials) {
+        CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig(failureThreshold,
+                Duration.ofSeconds(openSeconds),
+                halfOpenTrials);
         return new DelegatingNotificationSender(whatsAppMessageSender,
                 firebaseNotificationSender,
-                pushNotificationRepository,
-                whatsAppMessageRepository);
+                Map.of(NotificationChannel.WHATSAPP_MESSAGES,
+                        new CircuitBreaker("whatsapp", circuitBreakerConfig, meterRegistry),
+                        NotificationChannel.PUSH_NOTIFICATIONS,
+                        new CircuitBreaker("push", circuitBreakerConfig, meterRegistry)));
     }
 
     @Bean
@@ -49,16 +60,27 @@ public class ProdNotificationConfig {
     @Bean
     public WhatsAppMessageSender whatsAppMessageSender(
             @Value("${whatsapp.api.url}") String whatsappApiUrl,
-            @Value("${whatsapp.sender.phone.id}") String senderPhoneId,
+            @Value("${whatsapp.sender.phone.ids:${whatsapp.sender.phone.id}}") List<String> senderPhoneIds,
             @Value("${whatsapp.api.bearer.token}") String bearerToken,
-            @Value("${whatsapp.template.name}") String templateName
+            @Value("${whatsapp.template.name}") String templateName,
+            @Value("${whatsapp.connect.timeout.milli.seconds}") long connectTimeout,
+            @Value("${whatsapp.request.timeout.milli.seconds}") long requestTimeout,
+            @Value("${whatsapp.rate.limit.per.second}") double permitsPerSecond,
+            @Value("${whatsapp.rate.limit.min.per.second}") double minPermitsPerSecond,
+            @Value("${whatsapp.rate.limit.burst}") int burst,
+            @Value("${whatsapp.rate.limit.max.wait.milli.seconds}") long maxWait,
+            ObjectMapper objectMapper
     ) {
-        return new WhatsAppMessageSender(new RestTemplate(), new WhatsAppSenderConfig(
-                whatsappApiUrl,
-                senderPhoneId,
-                bearerToken,
-                templateName
-        ));
+        return new WhatsAppMessageSender(WhatsAppMessageSender.httpClient(Duration.ofMillis(connectTimeout)),
+                objectMapper,
+                new WhatsAppSenderConfig(
+                        whatsappApiUrl,
+                        senderPhoneIds,
+                        bearerToken,
+                        templateName,
+                        Duration.ofMillis(requestTimeout),
+                        new RateLimitConfig(permitsPerSecond, minPermitsPerSecond, burst, Duration.ofMillis(maxWait))
+                ));
     }
 
     @PostConstruct
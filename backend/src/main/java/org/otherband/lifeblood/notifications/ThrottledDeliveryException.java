@@ -0,0 +1,19 @@
+package org.otherband.lifeblood.notifications;
+
+import java.time.Duration;
+
+/**
+ * Thrown by a sender when the provider, or our own rate limiter in front of it, has no capacity right now.
+ */
+public class ThrottledDeliveryException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ThrottledDeliveryException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
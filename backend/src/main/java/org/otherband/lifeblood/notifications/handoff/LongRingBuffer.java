@@ -0,0 +1,75 @@
+package org.otherband.lifeblood.notifications.handoff;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded FIFO queue of primitive longs over a preallocated array, turning producers away when full.
+ */
+public class LongRingBuffer {
+
+    private final long[] slots;
+    private final int mask;
+    private long head;
+    private long tail;
+
+    public LongRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, was %d".formatted(capacity));
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Appends as many of {@code values} as there is room for, in order.
+     *
+     * @return how many were appended, the rest did not fit
+     */
+    public synchronized int offer(long[] values) {
+        int accepted = (int) Math.min(values.length, slots.length - (tail - head));
+        for (int i = 0; i < accepted; i++) {
+            slots[(int) (tail++ & mask)] = values[i];
+        }
+        return accepted;
+    }
+
+    /**
+     * Appends the keys of as many of {@code values} as there is room for, in order, reading them straight from
+     * the values so no array of keys has to be built first.
+     *
+     * @return how many were appended, the rest did not fit
+     */
+    public synchronized <T> int offer(List<T> values, ToLongFunction<? super T> key) {
+        int accepted = (int) Math.min(values.size(), slots.length - (tail - head));
+        for (int i = 0; i < accepted; i++) {
+            slots[(int) (tail++ & mask)] = key.applyAsLong(values.get(i));
+        }
+        return accepted;
+    }
+
+    /**
+     * Moves the oldest values into {@code target}, as many as it holds.
+     *
+     * @return how many were moved, filling {@code target} from its start
+     */
+    public synchronized int drainTo(long[] target) {
+        int drained = (int) Math.min(target.length, tail - head);
+        for (int i = 0; i < drained; i++) {
+            target[i] = slots[(int) (head++ & mask)];
+        }
+        return drained;
+    }
+
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
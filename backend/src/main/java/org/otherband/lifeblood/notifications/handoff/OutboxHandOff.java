@@ -0,0 +1,141 @@
+package org.otherband.lifeblood.notifications.handoff;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.notifications.OutboxRow;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Passes the ids of freshly committed outbox rows straight to this node's dispatcher. Ids that do not fit are
+ * dropped and left to the outbox poll.
+ */
+@Slf4j
+public class OutboxHandOff implements AutoCloseable {
+
+    private final boolean enabled;
+    private final Map<NotificationChannel, Queue> queues = new EnumMap<>(NotificationChannel.class);
+    private final AtomicBoolean published = new AtomicBoolean();
+    private final Thread notifier;
+    private volatile boolean closed;
+    private volatile Runnable consumer = () -> {
+    };
+
+    /**
+     * @param enabled  when false nothing is ever queued and every row goes through the outbox poll
+     * @param capacity ids each channel can hold before dropping new ones
+     */
+    public OutboxHandOff(boolean enabled, int capacity, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            Queue queue = new Queue(new LongRingBuffer(enabled ? capacity : 1), Counter.builder("notifications.hand.off.dropped")
+                    .description("Outbox row ids that did not fit in the hand-off queue and were left to the poll")
+                    .tag("channel", tag(channel))
+                    .register(meterRegistry));
+            Gauge.builder("notifications.hand.off.occupancy", queue.ids(), LongRingBuffer::size)
+                    .description("Outbox row ids waiting in the hand-off queue")
+                    .tag("channel", tag(channel))
+                    .register(meterRegistry);
+            queues.put(channel, queue);
+        }
+        this.notifier = enabled ? Thread.ofVirtual().name("hand-off").start(this::notifyConsumer) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the rows for the dispatcher once the surrounding transaction commits, right away when there is
+     * none, and wakes the dispatcher up. Rows of a rolled back transaction are never queued.
+     */
+    public void publishAfterCommit(NotificationChannel channel, List<? extends OutboxRow> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(channel, rows);
+                }
+            });
+        } else {
+            publish(channel, rows);
+        }
+    }
+
+    /**
+     * Moves the oldest queued ids of the channel into {@code target}.
+     *
+     * @return how many were moved
+     */
+    public int drainTo(NotificationChannel channel, long[] target) {
+        return queues.get(channel).ids().drainTo(target);
+    }
+
+    /**
+     * Sets what to run, on the notifier thread, after ids were queued.
+     */
+    public void onPublish(Runnable consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (notifier != null) {
+            LockSupport.unpark(notifier);
+            try {
+                notifier.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void publish(NotificationChannel channel, List<? extends OutboxRow> rows) {
+        Queue queue = queues.get(channel);
+        int accepted = queue.ids().offer(rows, OutboxRow::getId);
+        if (accepted < rows.size()) {
+            queue.dropped().increment(rows.size() - accepted);
+            log.debug("Hand-off queue of [{}] is full, left [{}] rows to the poll", channel, rows.size() - accepted);
+        }
+        if (accepted > 0 && !published.getAndSet(true)) {
+            LockSupport.unpark(notifier);
+        }
+    }
+
+    private void notifyConsumer() {
+        while (!closed) {
+            if (!published.getAndSet(false)) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                consumer.run();
+            } catch (RuntimeException e) {
+                log.warn("Hand-off consumer failed, the rows are left to the poll", e);
+            }
+        }
+    }
+
+    private static String tag(NotificationChannel channel) {
+        return switch (channel) {
+            case WHATSAPP_MESSAGES -> "whatsapp";
+            case PUSH_NOTIFICATIONS -> "push";
+        };
+    }
+
+    private record Queue(LongRingBuffer ids, Counter dropped) {
+    }
+}
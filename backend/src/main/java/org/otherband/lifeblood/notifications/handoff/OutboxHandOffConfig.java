@@ -0,0 +1,17 @@
+package org.otherband.lifeblood.notifications.handoff;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OutboxHandOffConfig {
+
+    @Bean(destroyMethod = "close")
+    public OutboxHandOff outboxHandOff(MeterRegistry meterRegistry,
+                                       @Value("${notifications.hand.off.enabled}") boolean enabled,
+                                       @Value("${notifications.hand.off.capacity}") int capacity) {
+        return new OutboxHandOff(enabled, capacity, meterRegistry);
+    }
+}
@@ -3,23 +3,126 @@ package org.otherband.lifeblood.notifications.push;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
 import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import org.otherband.lifeblood.notifications.DeliveryResult;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class FirebaseNotificationSender {
 
+    /**
+     * Most tokens the Admin SDK accepts in one multicast message.
+     */
+    public static final int MAX_MULTICAST_TOKENS = 500;
+
+    private final Supplier<FirebaseMessaging> firebaseMessaging;
+
+    public FirebaseNotificationSender() {
+        this(FirebaseMessaging::getInstance);
+    }
+
+    public FirebaseNotificationSender(Supplier<FirebaseMessaging> firebaseMessaging) {
+        this.firebaseMessaging = firebaseMessaging;
+    }
+
     public void send(PushNotification notification) {
         Message message = Message.builder()
                 .setToken(notification.getUserToken())
-                .setNotification(Notification.builder()
-                        .setTitle(notification.getTitle())
-                        .setBody(notification.getBody())
-                        .build())
+                .setNotification(toNotification(notification.getPayload()))
                 .build();
         try {
-            FirebaseMessaging.getInstance().send(message);
+            firebaseMessaging.get().send(message);
         } catch (FirebaseMessagingException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Sends notifications sharing a payload as multicast messages of up to {@link #MAX_MULTICAST_TOKENS} tokens.
+     *
+     * @return one result per notification, in the order they were given
+     */
+    public List<DeliveryResult> sendAll(List<PushNotification> notifications) {
+        Map<Long, List<Integer>> indexesByPayload = new LinkedHashMap<>();
+        for (int i = 0; i < notifications.size(); i++) {
+            indexesByPayload.computeIfAbsent(notifications.get(i).getPayload().getId(), payloadId -> new ArrayList<>())
+                    .add(i);
+        }
+        DeliveryResult[] results = new DeliveryResult[notifications.size()];
+        for (List<Integer> indexes : indexesByPayload.values()) {
+            NotificationPayloadEntity payload = notifications.get(indexes.getFirst()).getPayload();
+            for (int from = 0; from < indexes.size(); from += MAX_MULTICAST_TOKENS) {
+                List<Integer> chunk = indexes.subList(from, Math.min(from + MAX_MULTICAST_TOKENS, indexes.size()));
+                List<DeliveryResult> chunkResults = sendMulticast(payload, chunk.stream()
+                        .map(index -> notifications.get(index).getUserToken())
+                        .toList());
+                for (int i = 0; i < chunk.size(); i++) {
+                    results[chunk.get(i)] = chunkResults.get(i);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<DeliveryResult> sendMulticast(NotificationPayloadEntity payload, List<String> tokens) {
+        MulticastMessage message = MulticastMessage.builder()
+                .addAllTokens(tokens)
+                .setNotification(toNotification(payload))
+                .build();
+        try {
+            List<SendResponse> responses = firebaseMessaging.get().sendEachForMulticast(message).getResponses();
+            boolean messageInvalid = responses.stream().allMatch(FirebaseNotificationSender::isInvalidArgument);
+            return responses.stream()
+                    .map(response -> toResult(response, messageInvalid))
+                    .toList();
+        } catch (FirebaseMessagingException e) {
+            DeliveryResult failed = DeliveryResult.failed(e.getMessage());
+            return tokens.stream().map(token -> failed).toList();
+        }
+    }
+
+    /**
+     * FCM answers INVALID_ARGUMENT both for a malformed token and for a message it cannot accept, an oversized
+     * payload for one. Only when other tokens of the same message did not fail that way is the token to blame,
+     * otherwise the rows are refused without touching their tokens.
+     *
+     * @param messageInvalid whether every token of the message failed with INVALID_ARGUMENT
+     */
+    private static DeliveryResult toResult(SendResponse response, boolean messageInvalid) {
+        if (response.isSuccessful()) {
+            return DeliveryResult.sent();
+        }
+        FirebaseMessagingException exception = response.getException();
+        MessagingErrorCode errorCode = exception.getMessagingErrorCode();
+        if (errorCode == MessagingErrorCode.UNREGISTERED
+                || (errorCode == MessagingErrorCode.INVALID_ARGUMENT && !messageInvalid)) {
+            return DeliveryResult.invalidToken("%s: %s".formatted(errorCode, exception.getMessage()));
+        }
+        if (errorCode == MessagingErrorCode.SENDER_ID_MISMATCH || errorCode == MessagingErrorCode.INVALID_ARGUMENT) {
+            return DeliveryResult.rejected("%s: %s".formatted(errorCode, exception.getMessage()));
+        }
+        return DeliveryResult.failed("%s: %s".formatted(errorCode, exception.getMessage()));
+    }
+
+    private static boolean isInvalidArgument(SendResponse response) {
+        return !response.isSuccessful()
+                && response.getException().getMessagingErrorCode() == MessagingErrorCode.INVALID_ARGUMENT;
+    }
+
+    private static Notification toNotification(NotificationPayloadEntity payload) {
+        return Notification.builder()
+                .setTitle(payload.getPushTitle())
+                .setBody(payload.getPushBody())
+                .build();
+    }
+
 }
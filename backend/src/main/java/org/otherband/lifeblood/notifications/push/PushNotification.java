@@ -6,6 +6,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.otherband.lifeblood.generated.model.PushNotificationType;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.NotificationPriority;
+import org.otherband.lifeblood.notifications.OutboxRow;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -17,20 +20,46 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class PushNotification {
+public class PushNotification implements OutboxRow {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "push_notification_seq")
+    @SequenceGenerator(name = "push_notification_seq", sequenceName = "push_notification_seq", allocationSize = 50)
     private Long id;
 
-    private String title;
-    private String body;
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "payload_id")
+    private NotificationPayloadEntity payload;
     private String userToken;
     private boolean sent;
 
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private NotificationPriority priority = NotificationPriority.NORMAL;
+
+    private boolean deadLettered;
+    @Column(length = 1000)
+    private String lastError;
+
+    private String claimedBy;
+    private LocalDateTime claimedUntil;
+
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+
     @Enumerated(EnumType.STRING)
     private PushNotificationType pushNotificationType;
 
     @CreatedDate
     private LocalDateTime creationDate;
+
+    /**
+     * Runs after the auditing listener has set the creation date.
+     */
+    @PrePersist
+    void firstAttemptRightAway() {
+        if (nextAttemptAt == null) {
+            nextAttemptAt = creationDate;
+        }
+    }
 }
@@ -1,11 +1,22 @@
 package org.otherband.lifeblood.notifications.push;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.otherband.lifeblood.notifications.OutboxRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Collection;
 
 @Repository
-public interface PushNotificationRepository extends JpaRepository<PushNotification, Long> {
-    List<PushNotification> findTop100BySentIsFalseOrderByCreationDateAsc();
+public interface PushNotificationRepository extends OutboxRepository<PushNotification> {
+
+    /**
+     * Dead-letters every row still waiting to be sent to one of the tokens, without counting an attempt.
+     */
+    @Modifying
+    @Query("update push_notification o set o.deadLettered = true, o.lastError = :error,"
+            + " o.claimedBy = null, o.claimedUntil = null"
+            + " where o.userToken in :tokens and o.sent = false and o.deadLettered = false")
+    int cancelForTokens(@Param("tokens") Collection<String> tokens, @Param("error") String error);
 }
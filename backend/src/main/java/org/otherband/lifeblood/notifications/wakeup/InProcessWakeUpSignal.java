@@ -0,0 +1,58 @@
+package org.otherband.lifeblood.notifications.wakeup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Wakes the subscribers of this node only once the signalling transaction commits, for databases without
+ * {@code LISTEN/NOTIFY} such as H2.
+ */
+public class InProcessWakeUpSignal implements WakeUpSignal, AutoCloseable {
+
+    private final WakeUpSubscribers subscribers;
+
+    public InProcessWakeUpSignal(MeterRegistry meterRegistry) {
+        this.subscribers = new WakeUpSubscribers(meterRegistry);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void signal(WakeUpChannel channel) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            subscribers.wakeUp(channel);
+            return;
+        }
+        Set<WakeUpChannel> pending = (Set<WakeUpChannel>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<WakeUpChannel> channels = EnumSet.noneOf(WakeUpChannel.class);
+            TransactionSynchronizationManager.bindResource(this, channels);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    channels.forEach(subscribers::wakeUp);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InProcessWakeUpSignal.this);
+                }
+            });
+            pending = channels;
+        }
+        pending.add(channel);
+    }
+
+    @Override
+    public void subscribe(WakeUpChannel channel, Runnable subscriber) {
+        subscribers.add(channel, subscriber);
+    }
+
+    @Override
+    public void close() {
+        subscribers.close();
+    }
+}
@@ -0,0 +1,123 @@
+package org.otherband.lifeblood.notifications.wakeup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Signals through PostgreSQL {@code NOTIFY}, listening on a dedicated connection that is reopened whenever it
+ * drops.
+ */
+@Slf4j
+public class PostgresWakeUpSignal implements WakeUpSignal, AutoCloseable {
+
+    /**
+     * How long the listener blocks waiting for notifications before checking whether it was closed.
+     */
+    private static final int RECEIVE_TIMEOUT_MILLIS = 1000;
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource listenerDataSource;
+    private final WakeUpSubscribers subscribers;
+    private Thread listener;
+    private volatile boolean closed;
+
+    /**
+     * @param listenerDataSource where to open the listening connection, best kept out of the pool since it is
+     *                           never given back
+     */
+    public PostgresWakeUpSignal(JdbcTemplate jdbcTemplate, DataSource listenerDataSource, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listenerDataSource = listenerDataSource;
+        this.subscribers = new WakeUpSubscribers(meterRegistry);
+    }
+
+    @Override
+    public void signal(WakeUpChannel channel) {
+        jdbcTemplate.queryForList("select pg_notify(?, '')", channel.getChannelName());
+    }
+
+    @Override
+    public synchronized void subscribe(WakeUpChannel channel, Runnable subscriber) {
+        subscribers.add(channel, subscriber);
+        if (listener == null && !closed) {
+            listener = Thread.ofPlatform().name("wake-up-listener").daemon().start(this::listen);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread running;
+        synchronized (this) {
+            running = listener;
+        }
+        if (running != null) {
+            try {
+                running.join(RECEIVE_TIMEOUT_MILLIS * 2L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        subscribers.close();
+    }
+
+    private void listen() {
+        while (!closed) {
+            try (Connection connection = listenerDataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                for (WakeUpChannel channel : WakeUpChannel.values()) {
+                    statement.execute("LISTEN " + channel.getChannelName());
+                }
+                log.info("Listening for wake-up signals");
+                // signals sent while this node was not listening are lost, so look for work once
+                Arrays.stream(WakeUpChannel.values()).forEach(subscribers::wakeUp);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (!closed) {
+                    PGNotification[] notifications = pgConnection.getNotifications(RECEIVE_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        Arrays.stream(notifications)
+                                .map(notification -> toChannel(notification.getName()))
+                                .filter(Objects::nonNull)
+                                .distinct()
+                                .forEach(subscribers::wakeUp);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!closed) {
+                    log.warn("Wake-up listener lost its connection, reconnecting in [{}]", RECONNECT_DELAY, e);
+                    sleepBeforeReconnecting();
+                }
+            }
+        }
+    }
+
+    private void sleepBeforeReconnecting() {
+        try {
+            Thread.sleep(RECONNECT_DELAY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    private static WakeUpChannel toChannel(String channelName) {
+        for (WakeUpChannel channel : WakeUpChannel.values()) {
+            if (channel.getChannelName().equals(channelName)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+}
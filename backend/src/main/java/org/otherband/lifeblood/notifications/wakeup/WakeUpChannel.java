@@ -0,0 +1,25 @@
+package org.otherband.lifeblood.notifications.wakeup;
+
+/**
+ * Kinds of work a node can be woken up for, each mapped to its own PostgreSQL notification channel.
+ */
+public enum WakeUpChannel {
+    /**
+     * An alert is waiting to be fanned out.
+     */
+    ALERTS("lifeblood_alerts"),
+    /**
+     * Outbox rows are waiting to be sent.
+     */
+    OUTBOX("lifeblood_outbox");
+
+    private final String channelName;
+
+    WakeUpChannel(String channelName) {
+        this.channelName = channelName;
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+}
@@ -0,0 +1,26 @@
+package org.otherband.lifeblood.notifications.wakeup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+@Configuration
+public class WakeUpConfig {
+
+    @Bean(destroyMethod = "close")
+    public WakeUpSignal wakeUpSignal(DataSourceProperties dataSourceProperties,
+                                     JdbcTemplate jdbcTemplate,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${notifications.wake.up.listen.notify.enabled}") boolean listenNotifyEnabled) {
+        if (listenNotifyEnabled) {
+            return new PostgresWakeUpSignal(jdbcTemplate,
+                    dataSourceProperties.initializeDataSourceBuilder().type(SimpleDriverDataSource.class).build(),
+                    meterRegistry);
+        }
+        return new InProcessWakeUpSignal(meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package org.otherband.lifeblood.notifications.wakeup;
+
+/**
+ * Lets writers wake the jobs that process their rows once the writing transaction commits. Delivery is best
+ * effort, the jobs keep polling.
+ */
+public interface WakeUpSignal {
+
+    /**
+     * Wakes the subscribers of the channel, on every node, once the surrounding transaction commits, right away
+     * when there is none.
+     */
+    void signal(WakeUpChannel channel);
+
+    /**
+     * Runs {@code subscriber} on a thread of its own whenever the channel is signalled. A subscriber can be
+     * called again while still running, so it has to cope with concurrent calls.
+     */
+    void subscribe(WakeUpChannel channel, Runnable subscriber);
+}
@@ -0,0 +1,61 @@
+package org.otherband.lifeblood.notifications.wakeup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Subscribers of each channel, woken on virtual threads so a slow subscriber never holds up the thread
+ * receiving the signals.
+ */
+@Slf4j
+class WakeUpSubscribers implements AutoCloseable {
+
+    private final Map<WakeUpChannel, List<Runnable>> subscribers = new EnumMap<>(WakeUpChannel.class);
+    private final Map<WakeUpChannel, Counter> wakeUps = new EnumMap<>(WakeUpChannel.class);
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("wake-up-", 0).factory());
+
+    WakeUpSubscribers(MeterRegistry meterRegistry) {
+        for (WakeUpChannel channel : WakeUpChannel.values()) {
+            subscribers.put(channel, new CopyOnWriteArrayList<>());
+            wakeUps.put(channel, Counter.builder("notifications.wake.ups")
+                    .description("Signals received telling this node that work is waiting")
+                    .tag("channel", channel.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    void add(WakeUpChannel channel, Runnable subscriber) {
+        subscribers.get(channel).add(subscriber);
+    }
+
+    boolean isEmpty() {
+        return subscribers.values().stream().allMatch(List::isEmpty);
+    }
+
+    void wakeUp(WakeUpChannel channel) {
+        wakeUps.get(channel).increment();
+        for (Runnable subscriber : subscribers.get(channel)) {
+            executor.execute(() -> {
+                try {
+                    subscriber.run();
+                } catch (RuntimeException e) {
+                    log.error("Woken up subscriber of [{}] failed", channel, e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,114 @@
+package org.otherband.lifeblood.notifications.whatsapp;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket whose refill rate halves on every throttling response and creeps back up on success.
+ */
+public class AdaptiveRateLimiter {
+
+    /**
+     * Share of the configured rate won back by each successful request.
+     */
+    private static final double RECOVERY_STEP = 0.01;
+    private static final double BACKOFF_FACTOR = 0.5;
+
+    private final RateLimitConfig config;
+    private final LongSupplier nanoTime;
+    private double permitsPerSecond;
+    private double tokens;
+    private long refilledAt;
+    private long blockedUntil;
+
+    public AdaptiveRateLimiter(RateLimitConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    public AdaptiveRateLimiter(RateLimitConfig config, LongSupplier nanoTime) {
+        this.config = config;
+        this.nanoTime = nanoTime;
+        this.permitsPerSecond = config.permitsPerSecond();
+        this.tokens = config.burst();
+        this.refilledAt = nanoTime.getAsLong();
+        this.blockedUntil = refilledAt;
+    }
+
+    /**
+     * Takes a token only if one is free right now.
+     */
+    public synchronized boolean tryAcquireNow() {
+        long now = nanoTime.getAsLong();
+        refill(now);
+        if (now < blockedUntil || tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Reserves the next token.
+     *
+     * @return how long the caller has to wait before using it, empty if longer than the configured maximum
+     */
+    public synchronized Optional<Duration> reserve() {
+        long now = nanoTime.getAsLong();
+        refill(now);
+        long wait = Math.max(0, blockedUntil - now);
+        if (tokens < 1) {
+            wait += (long) ((1 - tokens) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+        }
+        if (wait > config.maxWait().toNanos()) {
+            return Optional.empty();
+        }
+        tokens -= 1;
+        return Optional.of(Duration.ofNanos(wait));
+    }
+
+    /**
+     * @return how long until a token is free, to tell callers turned away by {@link #reserve()} when to come back
+     */
+    public synchronized Duration retryAfter() {
+        long now = nanoTime.getAsLong();
+        refill(now);
+        long wait = Math.max(0, blockedUntil - now)
+                + (long) (Math.max(0, 1 - tokens) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+        return Duration.ofNanos(wait);
+    }
+
+    public synchronized void onSuccess() {
+        permitsPerSecond = Math.min(config.permitsPerSecond(),
+                permitsPerSecond + config.permitsPerSecond() * RECOVERY_STEP);
+    }
+
+    /**
+     * @param retryAfter how long the provider asked us to wait, if it said
+     */
+    public synchronized void onThrottled(Duration retryAfter) {
+        long now = nanoTime.getAsLong();
+        refill(now);
+        permitsPerSecond = Math.max(config.minPermitsPerSecond(), permitsPerSecond * BACKOFF_FACTOR);
+        tokens = Math.min(tokens, 0);
+        if (retryAfter != null) {
+            blockedUntil = Math.max(blockedUntil, now + retryAfter.toNanos());
+        }
+    }
+
+    public synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Adds the tokens earned since the last refill, none of them while the bucket is blocked.
+     */
+    private void refill(long now) {
+        long from = Math.max(refilledAt, blockedUntil);
+        if (now > from) {
+            tokens = Math.min(config.burst(), tokens + (now - from) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+        refilledAt = Math.max(refilledAt, now);
+    }
+}
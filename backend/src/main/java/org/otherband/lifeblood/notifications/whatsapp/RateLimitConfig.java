@@ -0,0 +1,17 @@
+package org.otherband.lifeblood.notifications.whatsapp;
+
+import java.time.Duration;
+
+/**
+ * @param permitsPerSecond    requests per second a sender is allowed, the provider's limit
+ * @param minPermitsPerSecond rate throttling responses never push the limiter below
+ * @param burst               requests that may go out at once after the sender has been idle
+ * @param maxWait             longest a send waits for a token before its row is handed back to the outbox
+ */
+public record RateLimitConfig(
+        double permitsPerSecond,
+        double minPermitsPerSecond,
+        int burst,
+        Duration maxWait
+) {
+}
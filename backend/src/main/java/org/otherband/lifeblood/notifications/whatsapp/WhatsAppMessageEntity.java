@@ -5,11 +5,13 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.NotificationPriority;
+import org.otherband.lifeblood.notifications.OutboxRow;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Entity(name = "whatsapp_message")
 @EntityListeners(AuditingEntityListener.class)
@@ -17,18 +19,43 @@ import java.util.List;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class WhatsAppMessageEntity {
+public class WhatsAppMessageEntity implements OutboxRow {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "whatsapp_message_seq")
+    @SequenceGenerator(name = "whatsapp_message_seq", sequenceName = "whatsapp_message_seq", allocationSize = 50)
     private Long id;
 
-    private String templateName;
-    @Column(columnDefinition = "varchar(50) array")
-    private List<String> templateVariables;
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "payload_id")
+    private NotificationPayloadEntity payload;
 
     private String phoneNumber;
     private boolean sent;
 
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private NotificationPriority priority = NotificationPriority.NORMAL;
+
+    private boolean deadLettered;
+    @Column(length = 1000)
+    private String lastError;
+
+    private String claimedBy;
+    private LocalDateTime claimedUntil;
+
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+
     @CreatedDate
     private LocalDateTime creationDate;
+
+    /**
+     * Runs after the auditing listener has set the creation date.
+     */
+    @PrePersist
+    void firstAttemptRightAway() {
+        if (nextAttemptAt == null) {
+            nextAttemptAt = creationDate;
+        }
+    }
 }
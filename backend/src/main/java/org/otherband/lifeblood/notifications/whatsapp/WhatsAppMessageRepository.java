@@ -1,11 +1,8 @@
 package org.otherband.lifeblood.notifications.whatsapp;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.otherband.lifeblood.notifications.OutboxRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
 @Repository
-public interface WhatsAppMessageRepository extends JpaRepository<WhatsAppMessageEntity, Long> {
-    List<WhatsAppMessageEntity> findTop100BySentIsFalseOrderByCreationDateAsc();
+public interface WhatsAppMessageRepository extends OutboxRepository<WhatsAppMessageEntity> {
 }
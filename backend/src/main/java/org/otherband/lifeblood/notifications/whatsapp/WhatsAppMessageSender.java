@@ -1,32 +1,203 @@
 package org.otherband.lifeblood.notifications.whatsapp;
 
-import org.springframework.http.HttpEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.otherband.lifeblood.notifications.PermanentDeliveryException;
+import org.otherband.lifeblood.notifications.ThrottledDeliveryException;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderPool.Reservation;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderPool.SenderIdentity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class WhatsAppMessageSender {
 
-    private final RestTemplate restTemplate;
+    /**
+     * Graph API error codes for application, account and per-recipient throughput limits.
+     */
+    private static final Set<Integer> THROTTLING_ERROR_CODES = Set.of(4, 80007, 130429, 131056);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
     private final WhatsAppSenderConfig config;
+    private final WhatsAppSenderPool senderPool;
+    private final Map<String, URI> messagesUris;
 
-    public WhatsAppMessageSender(RestTemplate restTemplate, WhatsAppSenderConfig config) {
-        this.restTemplate = restTemplate;
+    public WhatsAppMessageSender(HttpClient httpClient, ObjectMapper objectMapper, WhatsAppSenderConfig config) {
+        this(httpClient, objectMapper, config, new WhatsAppSenderPool(config.senderPhoneIds(), config.rateLimit()));
+    }
+
+    public WhatsAppMessageSender(HttpClient httpClient,
+                                 ObjectMapper objectMapper,
+                                 WhatsAppSenderConfig config,
+                                 WhatsAppSenderPool senderPool) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
         this.config = config;
+        this.senderPool = senderPool;
+        this.messagesUris = senderPool.getSenders()
+                .stream()
+                .collect(Collectors.toUnmodifiableMap(SenderIdentity::getPhoneId,
+                        sender -> UriComponentsBuilder.fromUriString(config.whatsappApiUrl())
+                                .buildAndExpand(sender.getPhoneId())
+                                .toUri()));
+    }
+
+    /**
+     * A client meant to be shared by every request: it keeps connections open between requests and multiplexes
+     * requests over a single HTTP/2 connection when the server supports it.
+     */
+    public static HttpClient httpClient(Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
     }
 
     public void send(WhatsAppMessageEntity genericNotification) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(config.bearerToken());
-            restTemplate.postForEntity(config.whatsappApiUrl(),
-                    new HttpEntity<>(buildMessage(genericNotification.getPhoneNumber(),
-                            genericNotification.getTemplateName()), headers),
-                    Void.class,
-                    config.senderPhoneId());
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to send WhatsApp message", e);
+            sendAsync(genericNotification).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends without ever blocking the caller. When the pool only has a token free shortly, the request goes out
+     * from a timer once it is due. The future fails with a {@link PermanentDeliveryException} when the API
+     * refused the message for good, with a {@link ThrottledDeliveryException} when neither the pool nor the API
+     * has capacity for it, and with any other exception when it is worth trying again.
+     */
+    public CompletableFuture<Void> sendAsync(WhatsAppMessageEntity genericNotification) {
+        Optional<Reservation> reservation = senderPool.reserve(genericNotification.getPhoneNumber());
+        if (reservation.isEmpty()) {
+            return CompletableFuture.failedFuture(new ThrottledDeliveryException(
+                    "Every WhatsApp sender is over its rate limit", senderPool.retryAfter()));
+        }
+        SenderIdentity sender = reservation.get().sender();
+        Duration dueIn = reservation.get().dueIn();
+        if (!dueIn.isPositive()) {
+            return send(sender, genericNotification);
+        }
+        Executor whenDue = CompletableFuture.delayedExecutor(dueIn.toNanos(), TimeUnit.NANOSECONDS);
+        return CompletableFuture.supplyAsync(() -> send(sender, genericNotification), whenDue)
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Posts the message from a sender holding a token for it. The sender is told how the request ended however
+     * it ends, a request that could not even be sent included, so its slot is never leaked.
+     */
+    private CompletableFuture<Void> send(SenderIdentity sender, WhatsAppMessageEntity genericNotification) {
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(messagesUris.get(sender.getPhoneId()))
+                    .timeout(config.requestTimeout())
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + config.bearerToken())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(buildMessage(genericNotification.getPhoneNumber(),
+                            genericNotification.getPayload().getTemplateName()))))
+                    .build();
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            // the request never reached the API, which says nothing about the sender
+            sender.rejected();
+            return CompletableFuture.failedFuture(e);
+        }
+        return response.handle((result, failure) -> {
+            if (failure != null) {
+                sender.failed();
+                throw new RuntimeException("Failed to send WhatsApp message", failure);
+            }
+            checkStatus(result, sender);
+            return null;
+        });
+    }
+
+    private void checkStatus(HttpResponse<String> response, SenderIdentity sender) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        if (status.is2xxSuccessful()) {
+            sender.succeeded();
+            return;
+        }
+        if (isThrottled(status, response.body())) {
+            Duration retryAfter = response.headers()
+                    .firstValueAsLong(HttpHeaders.RETRY_AFTER)
+                    .stream()
+                    .mapToObj(Duration::ofSeconds)
+                    .findFirst()
+                    .orElse(null);
+            sender.throttled(retryAfter);
+            throw new ThrottledDeliveryException("WhatsApp throttled message: %s %s".formatted(status, response.body()),
+                    retryAfter != null ? retryAfter : sender.getRateLimiter().retryAfter());
+        }
+        if (isSenderError(status)) {
+            sender.failed();
+            throw new RuntimeException("WhatsApp sender [%s] was refused: %s %s"
+                    .formatted(sender.getPhoneId(), status, response.body()));
+        }
+        if (status.is4xxClientError() && !isRetryable(status)) {
+            sender.rejected();
+            throw new PermanentDeliveryException("WhatsApp rejected message: %s %s".formatted(status, response.body()),
+                    null);
+        }
+        sender.failed();
+        throw new RuntimeException("Failed to send WhatsApp message: %s %s".formatted(status, response.body()));
+    }
+
+    /**
+     * The sender's token or number is the problem, another sender may well get the message through.
+     */
+    private static boolean isSenderError(HttpStatusCode status) {
+        return status.isSameCodeAs(HttpStatus.UNAUTHORIZED) || status.isSameCodeAs(HttpStatus.FORBIDDEN);
+    }
+
+    /**
+     * Client errors other than timeouts mean the request itself is wrong.
+     */
+    private static boolean isRetryable(HttpStatusCode status) {
+        return status.isSameCodeAs(HttpStatus.REQUEST_TIMEOUT);
+    }
+
+    /**
+     * The Graph API reports most rate limits as a 400 with one of its throttling error codes rather than a 429.
+     */
+    private boolean isThrottled(HttpStatusCode status, String body) {
+        if (status.isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+            return true;
+        }
+        try {
+            return THROTTLING_ERROR_CODES.contains(objectMapper.readTree(body).path("error").path("code").asInt());
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    private byte[] toJson(WhatsAppMessage message) {
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize WhatsApp message", e);
         }
     }
 
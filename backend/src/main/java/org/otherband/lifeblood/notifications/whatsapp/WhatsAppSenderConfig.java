@@ -1,9 +1,19 @@
 package org.otherband.lifeblood.notifications.whatsapp;
 
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param senderPhoneIds business phone numbers messages go out from, all reachable with the bearer token
+ * @param requestTimeout time allowed for the API to answer a request once it has been sent
+ * @param rateLimit      throughput allowed per sender phone number
+ */
 public record WhatsAppSenderConfig(
         String whatsappApiUrl,
-        String senderPhoneId,
+        List<String> senderPhoneIds,
         String bearerToken,
-        String templateName
+        String templateName,
+        Duration requestTimeout,
+        RateLimitConfig rateLimit
 ) {
 }
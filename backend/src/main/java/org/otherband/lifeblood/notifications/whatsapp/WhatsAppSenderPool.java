@@ -0,0 +1,163 @@
+package org.otherband.lifeblood.notifications.whatsapp;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * The business phone numbers messages can be sent from, each with its own rate limiter and health state.
+ */
+public class WhatsAppSenderPool {
+
+    private static final int FAILURES_BEFORE_UNHEALTHY = 3;
+    private static final Duration UNHEALTHY_FOR = Duration.ofSeconds(30);
+
+    private final List<SenderIdentity> senders;
+    private final LongSupplier nanoTime;
+
+    public WhatsAppSenderPool(List<String> senderPhoneIds, RateLimitConfig rateLimit) {
+        this(senderPhoneIds, rateLimit, System::nanoTime);
+    }
+
+    public WhatsAppSenderPool(List<String> senderPhoneIds, RateLimitConfig rateLimit, LongSupplier nanoTime) {
+        if (senderPhoneIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one WhatsApp sender phone id is required");
+        }
+        this.nanoTime = nanoTime;
+        this.senders = senderPhoneIds.stream()
+                .distinct()
+                .map(phoneId -> new SenderIdentity(phoneId, new AdaptiveRateLimiter(rateLimit, nanoTime)))
+                .toList();
+    }
+
+    public List<SenderIdentity> getSenders() {
+        return senders;
+    }
+
+    /**
+     * Picks a sender for the recipient and reserves one of its tokens, never blocking. The reserved sender counts
+     * the request as in flight until it is told how the request ended.
+     *
+     * @return empty if no sender has a token within the rate limit's maximum wait
+     */
+    public Optional<Reservation> reserve(String recipient) {
+        List<SenderIdentity> candidates = healthySenders();
+        SenderIdentity preferred = preferredSender(recipient, candidates);
+        Optional<Reservation> reservation = (preferred.rateLimiter.tryAcquireNow()
+                ? Optional.of(preferred)
+                : candidates.stream()
+                        .filter(sender -> sender != preferred)
+                        .sorted(Comparator.comparingDouble(SenderIdentity::load))
+                        .filter(sender -> sender.rateLimiter.tryAcquireNow())
+                        .findFirst())
+                .map(sender -> new Reservation(sender, Duration.ZERO))
+                .or(() -> preferred.rateLimiter.reserve().map(wait -> new Reservation(preferred, wait)));
+        reservation.ifPresent(reserved -> reserved.sender().inFlight.incrementAndGet());
+        return reservation;
+    }
+
+    /**
+     * @return how long until any healthy sender has a token free
+     */
+    public Duration retryAfter() {
+        return healthySenders().stream()
+                .map(sender -> sender.rateLimiter.retryAfter())
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+    }
+
+    /**
+     * Every sender while none of them is healthy, there is no better option than trying.
+     */
+    private List<SenderIdentity> healthySenders() {
+        long now = nanoTime.getAsLong();
+        List<SenderIdentity> healthy = senders.stream().filter(sender -> sender.isHealthy(now)).toList();
+        return healthy.isEmpty() ? senders : healthy;
+    }
+
+    private static SenderIdentity preferredSender(String recipient, List<SenderIdentity> candidates) {
+        return candidates.stream()
+                .max(Comparator.comparingLong(sender -> mix(recipient.hashCode() * 31L + sender.phoneId.hashCode())))
+                .orElseThrow();
+    }
+
+    /**
+     * The finalizer of SplitMix64, spreads hash codes that differ in a few bits across the whole range.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param dueIn how long until the token is due, the request must not go out before
+     */
+    public record Reservation(SenderIdentity sender, Duration dueIn) {
+    }
+
+    public class SenderIdentity {
+        private final String phoneId;
+        private final AdaptiveRateLimiter rateLimiter;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private int consecutiveFailures;
+        private long unhealthyUntil;
+
+        private SenderIdentity(String phoneId, AdaptiveRateLimiter rateLimiter) {
+            this.phoneId = phoneId;
+            this.rateLimiter = rateLimiter;
+        }
+
+        public String getPhoneId() {
+            return phoneId;
+        }
+
+        public AdaptiveRateLimiter getRateLimiter() {
+            return rateLimiter;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public synchronized void succeeded() {
+            inFlight.decrementAndGet();
+            rateLimiter.onSuccess();
+            consecutiveFailures = 0;
+        }
+
+        public void throttled(Duration retryAfter) {
+            inFlight.decrementAndGet();
+            rateLimiter.onThrottled(retryAfter);
+        }
+
+        /**
+         * The request failed because of this sender or the API, takes the sender out of rotation for a while
+         * after {@link #FAILURES_BEFORE_UNHEALTHY} failures in a row.
+         */
+        public synchronized void failed() {
+            inFlight.decrementAndGet();
+            if (++consecutiveFailures >= FAILURES_BEFORE_UNHEALTHY) {
+                unhealthyUntil = nanoTime.getAsLong() + UNHEALTHY_FOR.toNanos();
+            }
+        }
+
+        /**
+         * The request failed because of the message itself, which says nothing about the sender.
+         */
+        public void rejected() {
+            inFlight.decrementAndGet();
+        }
+
+        public synchronized boolean isHealthy(long now) {
+            return consecutiveFailures < FAILURES_BEFORE_UNHEALTHY || now >= unhealthyUntil;
+        }
+
+        private double load() {
+            return inFlight.get() / rateLimiter.getPermitsPerSecond();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.otherband.lifeblood.volunteer;
+
+import org.otherband.lifeblood.generated.model.PushNotificationType;
+
+import java.util.List;
+
+/**
+ * Read-only view of the columns needed to notify a volunteer, without the hospital graph.
+ */
+public record VolunteerContact(long id,
+                               String phoneNumber,
+                               String pushNotificationToken,
+                               PushNotificationType pushNotificationType,
+                               List<String> notificationChannels) {
+}
@@ -1,6 +1,7 @@
 package org.otherband.lifeblood.volunteer;
 
 import org.otherband.lifeblood.ApplicationMapper;
+import org.otherband.lifeblood.auth.PasswordHasher;
 import org.otherband.lifeblood.auth.RoleConstants;
 import org.otherband.lifeblood.generated.model.PhoneVerificationRequest;
 import org.otherband.lifeblood.generated.model.UpdateVolunteerSettingsRequest;
@@ -20,10 +21,12 @@ public class VolunteerController {
 
     private final VolunteerService volunteerService;
     private final ApplicationMapper mapper;
+    private final PasswordHasher passwordHasher;
 
-    public VolunteerController(VolunteerService volunteerService, ApplicationMapper mapper) {
+    public VolunteerController(VolunteerService volunteerService, ApplicationMapper mapper, PasswordHasher passwordHasher) {
         this.volunteerService = volunteerService;
         this.mapper = mapper;
+        this.passwordHasher = passwordHasher;
     }
 
     @GetMapping("/{uuid}")
@@ -44,7 +47,9 @@ public class VolunteerController {
     @PreAuthorize(RoleConstants.ALLOW_ALL)
     public VolunteerResponse registerVolunteer(@RequestBody VolunteerRegistrationRequest volunteerRequest) {
         SimpleValidator.INSTANCE.validate(volunteerRequest);
-        return mapper.toResponse(volunteerService.registerVolunteer(volunteerRequest));
+        // hashed before the registration transaction opens, so a saturated hasher never holds a connection
+        String hashedPassword = passwordHasher.encode(volunteerRequest.getPassword());
+        return mapper.toResponse(volunteerService.registerVolunteer(volunteerRequest, hashedPassword));
     }
 
     @PostMapping("/verify-phone-number")
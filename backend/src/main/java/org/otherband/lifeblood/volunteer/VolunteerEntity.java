@@ -17,7 +17,8 @@ import java.util.List;
 public class VolunteerEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "volunteer_seq")
+    @SequenceGenerator(name = "volunteer_seq", sequenceName = "volunteer_seq", allocationSize = 50)
     private Long id;
     private String uuid;
 
@@ -1,15 +1,54 @@
 package org.otherband.lifeblood.volunteer;
 
-import org.otherband.lifeblood.hospital.HospitalEntity;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface VolunteerJpaRepository extends JpaRepository<VolunteerEntity, Long> {
     Optional<VolunteerEntity> findByPhoneNumber(String phoneNumber);
     Optional<VolunteerEntity> findByUuid(String uuid);
-    List<VolunteerEntity> findByAlertableHospitalsContainsAndMinimumSeverityGreaterThanEqual(HospitalEntity hospitalEntity, int minimumSeverity);
+
+    @Query("""
+            select new org.otherband.lifeblood.volunteer.VolunteerContact(
+                v.id, v.phoneNumber, v.pushNotificationToken, v.pushNotificationType, v.notificationChannels)
+            from volunteer v
+            where v.id in :ids
+            order by v.id
+            """)
+    List<VolunteerContact> findContactsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new org.otherband.lifeblood.volunteer.VolunteerSubscription(v.id, h.id, v.minimumSeverity)
+            from volunteer v left join v.alertableHospitals h
+            """)
+    Stream<VolunteerSubscription> streamSubscriptions();
+
+    @Query("""
+            select new org.otherband.lifeblood.volunteer.VolunteerSubscription(v.id, h.id, v.minimumSeverity)
+            from volunteer v left join v.alertableHospitals h
+            where v.lastUpdatedDate > :since
+            """)
+    List<VolunteerSubscription> findSubscriptionsUpdatedAfter(@Param("since") LocalDateTime since);
+
+    /**
+     * Forgets push tokens the provider reported as no longer registered, so fan-out stops writing rows for them.
+     * A volunteer who registered a new token in the meantime keeps it.
+     */
+    @Modifying
+    @Query("update volunteer v set v.pushNotificationToken = null where v.pushNotificationToken in :tokens")
+    int clearPushNotificationTokens(@Param("tokens") Collection<String> tokens);
 }
@@ -15,9 +15,14 @@ import org.otherband.lifeblood.generated.model.UpdateVolunteerSettingsRequest;
 import org.otherband.lifeblood.generated.model.VolunteerRegistrationRequest;
 import org.otherband.lifeblood.hospital.HospitalEntity;
 import org.otherband.lifeblood.hospital.HospitalJpaRepository;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.NotificationPayloadRepository;
+import org.otherband.lifeblood.notifications.NotificationPriority;
+import org.otherband.lifeblood.notifications.handoff.OutboxHandOff;
+import org.otherband.lifeblood.notifications.wakeup.WakeUpChannel;
+import org.otherband.lifeblood.notifications.wakeup.WakeUpSignal;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,24 +35,35 @@ public class VolunteerService {
     private final VerificationCodeJpaRepository verificationCodeJpaRepository;
     private final TimeService timeService;
     private final WhatsAppMessageRepository whatsAppMessageRepository;
+    private final NotificationPayloadRepository notificationPayloadRepository;
     private final AuthenticationJpaRepository authenticationRepository;
-    private final PasswordEncoder passwordEncoder;
     private final ApplicationMapper mapper;
+    private final VolunteerSubscriptionIndex subscriptionIndex;
+    private final WakeUpSignal wakeUpSignal;
+    private final OutboxHandOff outboxHandOff;
 
     public VolunteerService(VolunteerJpaRepository volunteerJpaRepository,
                             HospitalJpaRepository hospitalJpaRepository,
                             VerificationCodeJpaRepository verificationCodeJpaRepository,
                             TimeService timeService,
-                            WhatsAppMessageRepository whatsAppMessageRepository, AuthenticationJpaRepository authenticationRepository, PasswordEncoder passwordEncoder,
-                            ApplicationMapper mapper) {
+                            WhatsAppMessageRepository whatsAppMessageRepository,
+                            NotificationPayloadRepository notificationPayloadRepository,
+                            AuthenticationJpaRepository authenticationRepository,
+                            ApplicationMapper mapper,
+                            VolunteerSubscriptionIndex subscriptionIndex,
+                            WakeUpSignal wakeUpSignal,
+                            OutboxHandOff outboxHandOff) {
         this.volunteerJpaRepository = volunteerJpaRepository;
         this.hospitalJpaRepository = hospitalJpaRepository;
         this.verificationCodeJpaRepository = verificationCodeJpaRepository;
         this.timeService = timeService;
         this.whatsAppMessageRepository = whatsAppMessageRepository;
+        this.notificationPayloadRepository = notificationPayloadRepository;
         this.authenticationRepository = authenticationRepository;
-        this.passwordEncoder = passwordEncoder;
         this.mapper = mapper;
+        this.subscriptionIndex = subscriptionIndex;
+        this.wakeUpSignal = wakeUpSignal;
+        this.outboxHandOff = outboxHandOff;
     }
 
     public VolunteerEntity findActiveUserByUuid(String volunteerUuid) {
@@ -82,15 +98,19 @@ public class VolunteerService {
             volunteer.setMinimumSeverity(AlertLevelUtils.toLevel(request.getMinimumAlertLevel()));
         }
 
-        return volunteerJpaRepository.save(volunteer);
+        return saveAndIndex(volunteer);
     }
 
     private boolean notNullOrEmpty(List<?> list) {
         return list != null && !list.isEmpty();
     }
 
+    /**
+     * The password must already be hashed by the caller: hashing waits on the bounded hasher pool,
+     * and doing it here would hold a database connection while queued.
+     */
     @Transactional
-    public VolunteerEntity registerVolunteer(VolunteerRegistrationRequest volunteerRequest) {
+    public VolunteerEntity registerVolunteer(VolunteerRegistrationRequest volunteerRequest, String hashedPassword) {
         String formattedPhoneNumber = formatPhoneNumber(volunteerRequest.getPhoneNumber());
         
         VolunteerEntity entity = mapper.toEntity(volunteerRequest);
@@ -106,20 +126,26 @@ public class VolunteerService {
 
         verificationCodeJpaRepository.save(verificationCode);
 
-        whatsAppMessageRepository.save(WhatsAppMessageEntity.builder()
+        NotificationPayloadEntity payload = notificationPayloadRepository.save(NotificationPayloadEntity.builder()
                         .templateName("verification_code")
-                        .phoneNumber(formattedPhoneNumber)
                         .templateVariables(List.of(verificationCode.getVerificationCode()))
                 .build());
+        WhatsAppMessageEntity verificationMessage = whatsAppMessageRepository.save(WhatsAppMessageEntity.builder()
+                        .payload(payload)
+                        .priority(NotificationPriority.HIGH)
+                        .phoneNumber(formattedPhoneNumber)
+                .build());
+        outboxHandOff.publishAfterCommit(NotificationChannel.WHATSAPP_MESSAGES, List.of(verificationMessage));
+        wakeUpSignal.signal(WakeUpChannel.OUTBOX);
 
         authenticationRepository.save(AuthEntity.builder()
                         .phoneNumber(entity.getPhoneNumber())
                         .userUuid(entity.getUuid())
-                        .hashedPassword(passwordEncoder.encode(volunteerRequest.getPassword()))
+                        .hashedPassword(hashedPassword)
                         .roles(Set.of(RoleConstants.VOLUNTEER_ROLE))
                 .build());
 
-        return volunteerJpaRepository.save(entity);
+        return saveAndIndex(entity);
     }
 
     @Transactional
@@ -146,7 +172,13 @@ public class VolunteerService {
                         "This should never happen: the verification code was found, but not the volunteer"));
 
         volunteer.setVerifiedPhoneNumber(true);
-        volunteerJpaRepository.save(volunteer);
+        saveAndIndex(volunteer);
+    }
+
+    private VolunteerEntity saveAndIndex(VolunteerEntity volunteer) {
+        VolunteerEntity saved = volunteerJpaRepository.save(volunteer);
+        subscriptionIndex.updateAfterCommit(saved);
+        return saved;
     }
 
     private List<HospitalEntity> mapToHospitals(List<String> hospitalUuids) {
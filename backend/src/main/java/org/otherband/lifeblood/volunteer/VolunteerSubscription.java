@@ -0,0 +1,7 @@
+package org.otherband.lifeblood.volunteer;
+
+/**
+ * One (volunteer, alertable hospital) pair, {@code hospitalId} is null for volunteers without hospitals.
+ */
+public record VolunteerSubscription(long volunteerId, Long hospitalId, int minimumSeverity) {
+}
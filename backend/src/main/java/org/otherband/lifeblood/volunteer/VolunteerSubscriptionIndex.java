@@ -0,0 +1,168 @@
+package org.otherband.lifeblood.volunteer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.otherband.lifeblood.TimeService;
+import org.otherband.lifeblood.generated.model.AlertLevel;
+import org.otherband.lifeblood.hospital.HospitalEntity;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory bitmaps of the volunteers subscribed to each hospital and minimum severity. Kept in step with the
+ * database by {@link #sync()}, which fan-out calls first.
+ */
+@Slf4j
+@Service
+public class VolunteerSubscriptionIndex {
+
+    private static final int SEVERITY_LEVELS = AlertLevel.values().length;
+    /**
+     * Volunteers committed just before the previous sync may carry an earlier modification date.
+     */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final VolunteerJpaRepository volunteerJpaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TimeService timeService;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Roaring64Bitmap allVolunteers = new Roaring64Bitmap();
+    private final Map<Long, Roaring64Bitmap[]> volunteersByHospital = new HashMap<>();
+    private volatile LocalDateTime syncedAt;
+
+    public VolunteerSubscriptionIndex(VolunteerJpaRepository volunteerJpaRepository,
+                                      TransactionTemplate transactionTemplate,
+                                      TimeService timeService) {
+        this.volunteerJpaRepository = volunteerJpaRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.timeService = timeService;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            syncedAt = timeService.now();
+            allVolunteers.clear();
+            volunteersByHospital.clear();
+            transactionTemplate.executeWithoutResult(transactionStatus -> {
+                try (Stream<VolunteerSubscription> subscriptions = volunteerJpaRepository.streamSubscriptions()) {
+                    subscriptions.forEach(this::add);
+                }
+            });
+            log.info("Subscription index built with [{}] volunteers", allVolunteers.getLongCardinality());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes every volunteer modified since the previous sync.
+     */
+    public synchronized void sync() {
+        LocalDateTime now = timeService.now();
+        Map<Long, List<VolunteerSubscription>> changed = volunteerJpaRepository
+                .findSubscriptionsUpdatedAfter(syncedAt.minus(SYNC_OVERLAP))
+                .stream()
+                .collect(Collectors.groupingBy(VolunteerSubscription::volunteerId));
+        changed.forEach((volunteerId, subscriptions) -> update(volunteerId,
+                subscriptions.getFirst().minimumSeverity(),
+                subscriptions.stream().map(VolunteerSubscription::hospitalId).filter(Objects::nonNull).toList()));
+        syncedAt = now;
+    }
+
+    /**
+     * Volunteers subscribed to the hospital with a minimum severity of at least {@code level}.
+     */
+    public Roaring64Bitmap findSubscribers(long hospitalId, int level) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap result = new Roaring64Bitmap();
+            Roaring64Bitmap[] bySeverity = volunteersByHospital.get(hospitalId);
+            if (bySeverity != null) {
+                for (int severity = Math.max(level, 0); severity < SEVERITY_LEVELS; severity++) {
+                    result.or(bySeverity[severity]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Roaring64Bitmap findAll() {
+        lock.readLock().lock();
+        try {
+            return allVolunteers.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes the volunteer once the surrounding transaction commits, immediately when there is none.
+     */
+    public void updateAfterCommit(VolunteerEntity volunteer) {
+        long volunteerId = volunteer.getId();
+        int minimumSeverity = volunteer.getMinimumSeverity();
+        List<Long> hospitalIds = volunteer.getAlertableHospitals().stream().map(HospitalEntity::getId).toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(volunteerId, minimumSeverity, hospitalIds);
+                }
+            });
+        } else {
+            update(volunteerId, minimumSeverity, hospitalIds);
+        }
+    }
+
+    private void update(long volunteerId, int minimumSeverity, List<Long> hospitalIds) {
+        lock.writeLock().lock();
+        try {
+            volunteersByHospital.values().forEach(bySeverity -> {
+                for (Roaring64Bitmap bitmap : bySeverity) {
+                    bitmap.removeLong(volunteerId);
+                }
+            });
+            allVolunteers.addLong(volunteerId);
+            hospitalIds.forEach(hospitalId -> add(new VolunteerSubscription(volunteerId, hospitalId, minimumSeverity)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(VolunteerSubscription subscription) {
+        long id = subscription.volunteerId();
+        allVolunteers.addLong(id);
+        if (subscription.hospitalId() == null) {
+            return;
+        }
+        int severity = Math.clamp(subscription.minimumSeverity(), 0, SEVERITY_LEVELS - 1);
+        volunteersByHospital.computeIfAbsent(subscription.hospitalId(), hospitalId -> newSeverityBitmaps())[severity].addLong(id);
+    }
+
+    private static Roaring64Bitmap[] newSeverityBitmaps() {
+        Roaring64Bitmap[] bySeverity = new Roaring64Bitmap[SEVERITY_LEVELS];
+        for (int severity = 0; severity < SEVERITY_LEVELS; severity++) {
+            bySeverity[severity] = new Roaring64Bitmap();
+        }
+        return bySeverity;
+    }
+
+}
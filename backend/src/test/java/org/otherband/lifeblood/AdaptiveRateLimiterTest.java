@@ -0,0 +1,71 @@
+package org.otherband.lifeblood;
+
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.notifications.whatsapp.AdaptiveRateLimiter;
+import org.otherband.lifeblood.notifications.whatsapp.RateLimitConfig;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AdaptiveRateLimiterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(
+            new RateLimitConfig(10, 1, 2, Duration.ofSeconds(1)), nanoTime::get);
+
+    @Test
+    void spacesRequestsOutOnceTheBurstIsUsed() {
+        assertThat(rateLimiter.reserve()).contains(Duration.ZERO);
+        assertThat(rateLimiter.reserve()).contains(Duration.ZERO);
+        assertThat(rateLimiter.reserve()).contains(Duration.ofMillis(100));
+        assertThat(rateLimiter.reserve()).contains(Duration.ofMillis(200));
+
+        advance(Duration.ofMillis(200));
+        assertThat(rateLimiter.reserve()).contains(Duration.ofMillis(100));
+    }
+
+    @Test
+    void turnsCallersAwayRatherThanQueueingPastTheMaximumWait() {
+        for (int i = 0; i < 12; i++) {
+            assertThat(rateLimiter.reserve()).isPresent();
+        }
+        assertThat(rateLimiter.reserve()).isEmpty();
+        assertThat(rateLimiter.retryAfter()).isEqualTo(Duration.ofMillis(1100));
+    }
+
+    @Test
+    void backsOffWhenThrottledAndRecoversGradually() {
+        rateLimiter.onThrottled(Duration.ofSeconds(5));
+
+        assertThat(rateLimiter.getPermitsPerSecond()).isEqualTo(5);
+        assertThat(rateLimiter.reserve()).isEmpty();
+        assertThat(rateLimiter.retryAfter()).isEqualTo(Duration.ofMillis(5200));
+
+        advance(Duration.ofSeconds(5));
+        assertThat(rateLimiter.reserve()).contains(Duration.ofMillis(200));
+
+        for (int i = 0; i < 20; i++) {
+            rateLimiter.onSuccess();
+        }
+        assertThat(rateLimiter.getPermitsPerSecond()).isCloseTo(7, within(1e-9));
+        for (int i = 0; i < 100; i++) {
+            rateLimiter.onSuccess();
+        }
+        assertThat(rateLimiter.getPermitsPerSecond()).isEqualTo(10);
+    }
+
+    @Test
+    void neverBacksOffBelowTheMinimumRate() {
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.onThrottled(null);
+        }
+        assertThat(rateLimiter.getPermitsPerSecond()).isEqualTo(1);
+    }
+
+    private void advance(Duration duration) {
+        nanoTime.addAndGet(duration.toNanos());
+    }
+}
@@ -10,6 +10,7 @@ import org.mockito.invocation.Invocation;
 import org.otherband.lifeblood.alert.AlertEntity;
 import org.otherband.lifeblood.generated.model.*;
 import org.otherband.lifeblood.hospital.HospitalEntity;
+import org.otherband.lifeblood.notifications.NotificationPriority;
 import org.otherband.lifeblood.notifications.push.PushNotification;
 import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
 import org.otherband.lifeblood.volunteer.VolunteerEntity;
@@ -20,6 +21,7 @@ import org.springframework.util.MultiValueMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -96,13 +98,18 @@ public class AlertTest extends BaseTest {
         creationRequest.setAlertLevel(AlertLevel.LIFE_OR_DEATH);
         creationRequest.setDoctorMessage("Life or death alert");
 
-        mockMvc.perform(
-                        MockMvcRequestBuilders.post(ALERT_API)
-                                .contentType("application/json")
-                                .content(objectMapper.writeValueAsString(creationRequest))
-                                .headers(authHeaders())
-                )
-                .andExpect(status().isCreated());
+        AlertEntity alert = createAlert(creationRequest);
+        assertThat(alert.getFanOutStatus()).isEqualTo(FanOutStatus.PENDING);
+
+        alertFanOutService.fanOutPendingAlerts();
+
+        AlertEntity fannedOut = alertJpaRepository.findAll()
+                .stream()
+                .filter(alertEntity -> alertEntity.getAlertLevel() == AlertLevel.LIFE_OR_DEATH)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Alert not saved"));
+        assertThat(fannedOut.getFanOutStatus()).isEqualTo(FanOutStatus.COMPLETED);
+        assertThat(fannedOut.getFanOutProgress()).isGreaterThanOrEqualTo(volunteers.size());
 
         List<PushNotification> allPush = pushNotificationRepository.findAll();
         List<WhatsAppMessageEntity> allWhatsApp = whatsAppMessageRepository.findAll();
@@ -111,8 +118,9 @@ public class AlertTest extends BaseTest {
                 assertThat(allPush.stream().anyMatch(pushNotification ->
                                 pushNotification.getUserToken().equals(token)
                                         && !pushNotification.isSent()
-                                        && pushNotification.getTitle().equals("Life or death alert")
-                                        && pushNotification.getBody().equals("""
+                                        && pushNotification.getPriority() == NotificationPriority.CRITICAL
+                                        && pushNotification.getPayload().getPushTitle().equals("Life or death alert")
+                                        && pushNotification.getPayload().getPushBody().equals("""
                                         Donation request at hospital %s with level Life or death. Doctor message: Life or death alert""".formatted(hospitals[0].getHospitalName()))
                         )).isTrue()
                 );
@@ -120,8 +128,9 @@ public class AlertTest extends BaseTest {
                         assertThat(allWhatsApp.stream().anyMatch(whatsAppMessage ->
                                 whatsAppMessage.getPhoneNumber().equals(phoneNumber)
                                         && !whatsAppMessage.isSent()
-                                        && whatsAppMessage.getTemplateName().equals("donation_alert")
-                                        && List.copyOf(whatsAppMessage.getTemplateVariables()).equals(
+                                        && whatsAppMessage.getPriority() == NotificationPriority.CRITICAL
+                                        && whatsAppMessage.getPayload().getTemplateName().equals("donation_alert")
+                                        && List.copyOf(whatsAppMessage.getPayload().getTemplateVariables()).equals(
                                                 List.of("Life or death", hospitals[0].getHospitalName(),
                                                         "Life or death alert")
                                 )
@@ -130,6 +139,71 @@ public class AlertTest extends BaseTest {
 
     }
 
+    @Test
+    void notifyOnlySubscribersWhenRoutine() throws Exception {
+        HospitalEntity[] hospitals = fetchAvailableHospitals();
+        VolunteerEntity subscriber = createVolunteerAt(hospitals[2]);
+        VolunteerEntity otherHospitalVolunteer = createVolunteerAt(hospitals[1]);
+
+        String doctorMessage = UUID.randomUUID().toString();
+        AlertCreationRequest creationRequest = new AlertCreationRequest();
+        creationRequest.setHospitalUuid(hospitals[2].getUuid());
+        creationRequest.setAlertLevel(AlertLevel.ROUTINE);
+        creationRequest.setDoctorMessage(doctorMessage);
+        createAlert(creationRequest);
+
+        alertFanOutService.fanOutPendingAlerts();
+
+        List<String> notifiedPhoneNumbers = whatsAppMessageRepository.findAll()
+                .stream()
+                .filter(whatsAppMessage -> whatsAppMessage.getPayload().getTemplateVariables().contains(doctorMessage))
+                .map(WhatsAppMessageEntity::getPhoneNumber)
+                .toList();
+        assertThat(notifiedPhoneNumbers)
+                .contains(subscriber.getPhoneNumber())
+                .doesNotContain(otherHospitalVolunteer.getPhoneNumber());
+    }
+
+    @Test
+    void volunteersWrittenOutsideTheServiceAreNotifiedToo() throws Exception {
+        HospitalEntity hospital = hospitalJpaRepository.findByUuid(fetchAvailableHospitals()[2].getUuid()).orElseThrow();
+        HospitalEntity otherHospital = hospitalJpaRepository.findByUuid(fetchAvailableHospitals()[1].getUuid()).orElseThrow();
+        // as if written by another node, whose after-commit hooks never reach this node's index
+        VolunteerEntity inserted = new VolunteerEntity();
+        inserted.setUuid(UUID.randomUUID().toString());
+        inserted.setPhoneNumber(randomPhoneNumber());
+        inserted.setAlertableHospitals(List.of(hospital));
+        inserted.setNotificationChannels(List.of(NotificationChannel.WHATSAPP_MESSAGES.name()));
+        volunteerJpaRepository.save(inserted);
+        VolunteerEntity moved = createVolunteerAt(otherHospital);
+        VolunteerEntity movedVolunteer = volunteerJpaRepository.findByUuid(moved.getUuid()).orElseThrow();
+        movedVolunteer.setAlertableHospitals(new ArrayList<>(List.of(hospital)));
+        volunteerJpaRepository.save(movedVolunteer);
+
+        String doctorMessage = UUID.randomUUID().toString();
+        AlertCreationRequest creationRequest = new AlertCreationRequest();
+        creationRequest.setHospitalUuid(hospital.getUuid());
+        creationRequest.setAlertLevel(AlertLevel.ROUTINE);
+        creationRequest.setDoctorMessage(doctorMessage);
+        createAlert(creationRequest);
+
+        alertFanOutService.fanOutPendingAlerts();
+
+        assertThat(whatsAppMessageRepository.findAll()
+                .stream()
+                .filter(whatsAppMessage -> whatsAppMessage.getPayload().getTemplateVariables().contains(doctorMessage))
+                .map(WhatsAppMessageEntity::getPhoneNumber))
+                .contains(inserted.getPhoneNumber(), moved.getPhoneNumber());
+    }
+
+    private VolunteerEntity createVolunteerAt(HospitalEntity hospital) throws Exception {
+        VolunteerRegistrationRequest registrationRequest = new VolunteerRegistrationRequest();
+        registrationRequest.setPhoneNumber(randomPhoneNumber());
+        registrationRequest.setSelectedHospitals(List.of(hospital.getUuid()));
+        registrationRequest.setPassword(randomPassword());
+        return createVolunteer(registrationRequest);
+    }
+
     @ParameterizedTest
     @MethodSource("internationalDoctorMessages")
     void createAlert(String internationalDoctorMessage) throws Exception {
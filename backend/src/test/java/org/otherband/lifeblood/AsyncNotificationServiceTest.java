@@ -0,0 +1,333 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.stubbing.Answer;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.jobs.AsyncNotificationConfig;
+import org.otherband.lifeblood.jobs.AsyncNotificationService;
+import org.otherband.lifeblood.jobs.NotificationDispatcher;
+import org.otherband.lifeblood.jobs.RetryPolicy;
+import org.otherband.lifeblood.notifications.NotificationPriority;
+import org.otherband.lifeblood.notifications.NotificationSender;
+import org.otherband.lifeblood.notifications.PermanentDeliveryException;
+import org.otherband.lifeblood.notifications.ThrottledDeliveryException;
+import org.otherband.lifeblood.notifications.DeliveryResult;
+import org.otherband.lifeblood.notifications.handoff.OutboxHandOff;
+import org.otherband.lifeblood.notifications.push.PushNotification;
+import org.otherband.lifeblood.notifications.push.PushNotificationRepository;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageRepository;
+import org.otherband.lifeblood.volunteer.VolunteerJpaRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AsyncNotificationServiceTest {
+
+    private final NotificationSender notificationSender = mock(NotificationSender.class, CALLS_REAL_METHODS);
+    private final WhatsAppMessageRepository whatsAppMessageRepository = mock(WhatsAppMessageRepository.class);
+    private final PushNotificationRepository pushNotificationRepository = mock(PushNotificationRepository.class);
+    private final VolunteerJpaRepository volunteerJpaRepository = mock(VolunteerJpaRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TimeService timeService = mock(TimeService.class);
+    private final OutboxHandOff handOff = new OutboxHandOff(true, 4, meterRegistry);
+    private final AsyncNotificationService service = new AsyncNotificationService(notificationSender,
+            whatsAppMessageRepository, pushNotificationRepository, volunteerJpaRepository, handOff,
+            NotificationDispatcher.sequential(), timeService,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry,
+            new AsyncNotificationConfig("node-1", Duration.ofMinutes(2), 100, Duration.ofMillis(100),
+                    Duration.ofMillis(800), new RetryPolicy(3, Duration.ofSeconds(10), Duration.ofMinutes(5))));
+    private LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        when(timeService.now()).thenAnswer(invocation -> now);
+    }
+
+    @Test
+    void criticalLaneIsDrainedFirstWithoutStarvingNormal() {
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any())).thenAnswer(fullBatches(3));
+        when(whatsAppMessageRepository.countBySentIsFalseAndDeadLetteredIsFalseAndPriority(NotificationPriority.NORMAL)).thenReturn(5000L);
+
+        service.sendNotifications();
+
+        InOrder inOrder = inOrder(whatsAppMessageRepository);
+        inOrder.verify(whatsAppMessageRepository)
+                .findClaimable(eq(NotificationPriority.CRITICAL), any(), eq(Limit.of(60)));
+        inOrder.verify(whatsAppMessageRepository)
+                .findClaimable(eq(NotificationPriority.HIGH), any(), eq(Limit.of(30)));
+        inOrder.verify(whatsAppMessageRepository)
+                .findClaimable(eq(NotificationPriority.NORMAL), any(), eq(Limit.of(10)));
+        verify(notificationSender, times(100)).sendWhatsAppMessage(any());
+        verify(whatsAppMessageRepository, times(3)).claim(any(), eq("node-1"), any());
+        verify(whatsAppMessageRepository, times(3)).markSent(any());
+        verify(whatsAppMessageRepository, never()).countBySentIsFalseAndDeadLetteredIsFalseAndPriority(any());
+        service.updateQueueDepths();
+        assertThat(meterRegistry.get("notifications.queue.depth")
+                .tag("channel", "whatsapp")
+                .tag("priority", NotificationPriority.NORMAL.name())
+                .gauge()
+                .value()).isEqualTo(5000);
+        assertThat(meterRegistry.get("notifications.queue.wait")
+                .tag("channel", "whatsapp")
+                .tag("priority", NotificationPriority.CRITICAL.name())
+                .timer()
+                .count()).isEqualTo(60);
+    }
+
+    @Test
+    void leftOverBudgetGoesToBusyLanes() {
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any()))
+                .thenReturn(List.of());
+        when(whatsAppMessageRepository.findClaimable(eq(NotificationPriority.NORMAL), any(), any()))
+                .thenAnswer(fullBatches(2));
+
+        service.sendNotifications();
+
+        verify(whatsAppMessageRepository, times(2))
+                .findClaimable(eq(NotificationPriority.NORMAL), any(), eq(Limit.of(10)));
+        verify(whatsAppMessageRepository)
+                .findClaimable(eq(NotificationPriority.NORMAL), any(), eq(Limit.of(90)));
+        verify(notificationSender, times(100)).sendWhatsAppMessage(any());
+    }
+
+    @Test
+    void failedSendIsRetriedAfterABackoff() {
+        List<WhatsAppMessageEntity> messages = messages(3);
+        messages.get(2).setAttempts(1);
+        whenCriticalLaneReturns(messages);
+        doThrow(new RuntimeException("provider down")).when(notificationSender).sendWhatsAppMessage(any());
+        doNothing().when(notificationSender).sendWhatsAppMessage(messages.get(0));
+
+        service.sendNotifications();
+
+        verify(whatsAppMessageRepository).markSent(List.of(0L));
+        ArgumentCaptor<LocalDateTime> firstRetry = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(whatsAppMessageRepository).markFailed(eq(List.of(1L)), eq("provider down"), firstRetry.capture());
+        assertThat(firstRetry.getValue()).isBetween(now.plusSeconds(5), now.plusSeconds(10));
+        ArgumentCaptor<LocalDateTime> secondRetry = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(whatsAppMessageRepository).markFailed(eq(List.of(2L)), eq("provider down"), secondRetry.capture());
+        assertThat(secondRetry.getValue()).isBetween(now.plusSeconds(10), now.plusSeconds(20));
+        // a lane with failures is not polled again in the same run
+        verify(whatsAppMessageRepository, times(1))
+                .findClaimable(eq(NotificationPriority.CRITICAL), any(), any());
+    }
+
+    @Test
+    void permanentFailuresAndExhaustedRowsAreDeadLettered() {
+        List<WhatsAppMessageEntity> messages = messages(3);
+        messages.get(1).setAttempts(2);
+        whenCriticalLaneReturns(messages);
+        doThrow(new PermanentDeliveryException("WhatsApp rejected message: 400 BAD_REQUEST", null))
+                .when(notificationSender).sendWhatsAppMessage(messages.get(0));
+        doThrow(new RuntimeException("provider down")).when(notificationSender).sendWhatsAppMessage(messages.get(1));
+
+        service.sendNotifications();
+
+        verify(whatsAppMessageRepository).markDeadLettered(List.of(0L), "WhatsApp rejected message: 400 BAD_REQUEST");
+        verify(whatsAppMessageRepository).markDeadLettered(List.of(1L), "Gave up after 3 attempts: provider down");
+        verify(whatsAppMessageRepository).markSent(List.of(2L));
+        verify(whatsAppMessageRepository, never()).markFailed(any(), any(), any());
+    }
+
+    @Test
+    void throttledRowsAreHandedBackWithoutCountingAnAttempt() {
+        List<WhatsAppMessageEntity> messages = messages(2);
+        whenCriticalLaneReturns(messages);
+        doThrow(new ThrottledDeliveryException("WhatsApp throttled message", Duration.ofMillis(2500)))
+                .when(notificationSender).sendWhatsAppMessage(any());
+
+        service.sendNotifications();
+
+        verify(whatsAppMessageRepository).requeue(List.of(0L, 1L), now.plusSeconds(3));
+        verify(whatsAppMessageRepository, never()).markFailed(any(), any(), any());
+        verify(whatsAppMessageRepository, never()).markDeadLettered(any(), any());
+    }
+
+    @Test
+    void unavailableChannelIsLeftInTheOutbox() {
+        when(notificationSender.isAvailable(NotificationChannel.WHATSAPP_MESSAGES)).thenReturn(false);
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any())).thenAnswer(fullBatches(3));
+
+        service.sendNotifications();
+
+        verify(whatsAppMessageRepository, never()).findClaimable(any(), any(), any());
+        verify(whatsAppMessageRepository, never()).claim(any(), any(), any());
+        verify(pushNotificationRepository, times(3)).findClaimable(any(), any(), any());
+    }
+
+    @Test
+    void deadTokensAreClearedWithTheRowsStillQueuedForThem() {
+        List<PushNotification> pushNotifications = IntStream.range(0, 4)
+                .mapToObj(i -> PushNotification.builder()
+                        .id((long) i)
+                        .userToken(i < 3 ? "dead-token-" + i % 2 : "live-token")
+                        .creationDate(now.minusMinutes(1))
+                        .build())
+                .toList();
+        when(pushNotificationRepository.findClaimable(any(), any(), any())).thenReturn(List.of());
+        when(pushNotificationRepository.findClaimable(eq(NotificationPriority.CRITICAL), any(), any()))
+                .thenReturn(pushNotifications);
+        DeliveryResult unregistered = DeliveryResult.invalidToken("UNREGISTERED: Requested entity was not found.");
+        doReturn(List.of(unregistered, unregistered, unregistered, DeliveryResult.sent()))
+                .when(notificationSender).sendPushNotifications(pushNotifications);
+
+        service.sendNotifications();
+
+        verify(pushNotificationRepository).markDeadLettered(List.of(0L, 1L, 2L), unregistered.error());
+        verify(pushNotificationRepository).markSent(List.of(3L));
+        verify(volunteerJpaRepository).clearPushNotificationTokens(List.of("dead-token-0", "dead-token-1"));
+        verify(pushNotificationRepository)
+                .cancelForTokens(List.of("dead-token-0", "dead-token-1"), "Push token is no longer registered");
+    }
+
+    @Test
+    void rejectedMessagesKeepTheirTokens() {
+        List<PushNotification> pushNotifications = IntStream.range(0, 3)
+                .mapToObj(i -> PushNotification.builder()
+                        .id((long) i)
+                        .userToken("token-" + i)
+                        .creationDate(now.minusMinutes(1))
+                        .build())
+                .toList();
+        when(pushNotificationRepository.findClaimable(any(), any(), any())).thenReturn(List.of());
+        when(pushNotificationRepository.findClaimable(eq(NotificationPriority.CRITICAL), any(), any()))
+                .thenReturn(pushNotifications);
+        // what the Firebase sender reports when the message itself was refused for every token
+        DeliveryResult invalidMessage = DeliveryResult.rejected("INVALID_ARGUMENT: Message is too big");
+        doReturn(List.of(invalidMessage, invalidMessage, invalidMessage))
+                .when(notificationSender).sendPushNotifications(pushNotifications);
+
+        service.sendNotifications();
+
+        verify(pushNotificationRepository).markDeadLettered(List.of(0L, 1L, 2L), invalidMessage.error());
+        verify(volunteerJpaRepository, never()).clearPushNotificationTokens(any());
+        verify(pushNotificationRepository, never()).cancelForTokens(any(), any());
+    }
+
+    @Test
+    void keepsPollingWhileRoundsComeBackFull() {
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any())).thenAnswer(fullBatches(6));
+
+        service.sendNotifications();
+
+        // two full rounds, then one finding every lane empty
+        verify(whatsAppMessageRepository, times(9)).findClaimable(any(), any(), any());
+        verify(notificationSender, times(200)).sendWhatsAppMessage(any());
+        assertThat(pollInterval()).isEqualTo(100);
+    }
+
+    @Test
+    void backsOffWhileIdle() {
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any())).thenReturn(List.of());
+
+        service.sendNotifications();
+        assertThat(pollInterval()).isEqualTo(200);
+
+        service.sendNotifications(); // too early, skipped
+        verify(whatsAppMessageRepository, times(3)).findClaimable(any(), any(), any());
+
+        for (long expectedInterval : new long[]{400, 800, 800}) {
+            now = now.plus(Duration.ofMillis((long) pollInterval()));
+            service.sendNotifications();
+            assertThat(pollInterval()).isEqualTo(expectedInterval);
+        }
+
+        when(whatsAppMessageRepository.findClaimable(eq(NotificationPriority.CRITICAL), any(), any()))
+                .thenReturn(messages(1));
+        now = now.plus(Duration.ofMillis(800));
+        service.sendNotifications();
+        assertThat(pollInterval()).isEqualTo(100);
+    }
+
+    @Test
+    void wakeUpPollsWithoutWaitingForTheIdleInterval() {
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any())).thenReturn(List.of());
+        service.sendNotifications();
+        assertThat(pollInterval()).isEqualTo(200);
+
+        when(whatsAppMessageRepository.findClaimable(eq(NotificationPriority.CRITICAL), any(), any()))
+                .thenReturn(messages(1));
+        service.wakeUp();
+
+        verify(whatsAppMessageRepository, times(2))
+                .findClaimable(eq(NotificationPriority.CRITICAL), any(), any());
+        verify(notificationSender).sendWhatsAppMessage(any());
+        assertThat(pollInterval()).isEqualTo(100);
+    }
+
+    @Test
+    void handedOffRowsAreClaimedByIdBeforeTheLanes() {
+        List<WhatsAppMessageEntity> messages = messages(6);
+        messages.get(1).setPriority(NotificationPriority.HIGH);
+        messages.get(2).setPriority(NotificationPriority.CRITICAL);
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any())).thenReturn(List.of());
+        // one of them was picked up by a poll in the meantime
+        when(whatsAppMessageRepository.findClaimableByIdIn(eq(List.of(0L, 1L, 2L, 3L)), any()))
+                .thenReturn(messages.subList(0, 3));
+
+        handOff.publishAfterCommit(NotificationChannel.WHATSAPP_MESSAGES, messages);
+        assertThat(meterRegistry.get("notifications.hand.off.occupancy").tag("channel", "whatsapp").gauge().value())
+                .isEqualTo(4);
+        assertThat(meterRegistry.get("notifications.hand.off.dropped").tag("channel", "whatsapp").counter().count())
+                .isEqualTo(2);
+        service.sendNotifications();
+
+        verify(whatsAppMessageRepository).claim(eq(List.of(0L, 1L, 2L)), eq("node-1"), any());
+        InOrder inOrder = inOrder(notificationSender, whatsAppMessageRepository);
+        inOrder.verify(notificationSender).sendWhatsAppMessage(messages.get(2));
+        inOrder.verify(notificationSender).sendWhatsAppMessage(messages.get(1));
+        inOrder.verify(notificationSender).sendWhatsAppMessage(messages.get(0));
+        inOrder.verify(whatsAppMessageRepository).markSent(List.of(2L, 1L, 0L));
+        inOrder.verify(whatsAppMessageRepository).findClaimable(eq(NotificationPriority.CRITICAL), any(), any());
+        assertThat(meterRegistry.get("notifications.hand.off.occupancy").tag("channel", "whatsapp").gauge().value())
+                .isZero();
+    }
+
+    private void whenCriticalLaneReturns(List<WhatsAppMessageEntity> messages) {
+        when(whatsAppMessageRepository.findClaimable(any(), any(), any()))
+                .thenReturn(List.of());
+        when(whatsAppMessageRepository.findClaimable(eq(NotificationPriority.CRITICAL), any(), any()))
+                .thenReturn(messages);
+    }
+
+    private double pollInterval() {
+        return meterRegistry.get("notifications.poll.interval").gauge().value();
+    }
+
+    /**
+     * Returns as many rows as asked for on the first {@code times} calls, nothing afterwards.
+     */
+    private static Answer<List<WhatsAppMessageEntity>> fullBatches(int times) {
+        AtomicInteger calls = new AtomicInteger();
+        return invocation -> {
+            if (calls.incrementAndGet() > times) {
+                return List.of();
+            }
+            List<WhatsAppMessageEntity> messages = messages(((Limit) invocation.getArgument(2)).max());
+            messages.forEach(message -> message.setPriority(invocation.getArgument(0)));
+            return messages;
+        };
+    }
+
+    private static List<WhatsAppMessageEntity> messages(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> WhatsAppMessageEntity.builder().id((long) i).creationDate(LocalDateTime.now().minusMinutes(1)).build())
+                .toList();
+    }
+}
@@ -9,6 +9,8 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.otherband.lifeblood.alert.AlertFanOutService;
+import org.otherband.lifeblood.alert.AlertJpaRepository;
 import org.otherband.lifeblood.auth.AuthEntity;
 import org.otherband.lifeblood.auth.AuthenticationJpaRepository;
 import org.otherband.lifeblood.auth.RoleConstants;
@@ -44,7 +46,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         "spring.profiles.active=test",
         "app.config.jobs.enabled=false",
         "jwt.secret.key=SOME_TOP_SECRET_JWT_KEY_THAT_MUST_NOT_BE_LEAKED",
-        "jwt.token.expiration.minutes=15"
+        "jwt.token.expiration.minutes=15",
+        "alerts.fan.out.batch.size=4" // small enough to exercise multi-chunk fan-out
 })
 @AutoConfigureMockMvc
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -81,6 +84,12 @@ public abstract class BaseTest {
     @Autowired
     public PushNotificationRepository pushNotificationRepository;
 
+    @Autowired
+    public AlertJpaRepository alertJpaRepository;
+
+    @Autowired
+    public AlertFanOutService alertFanOutService;
+
     @Autowired
     private AuthenticationJpaRepository authenticationJpaRepository;
 
@@ -0,0 +1,36 @@
+package org.otherband.lifeblood;
+
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.auth.BloomFilter;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesWhatWasAdded() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        List<String> added = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        added.forEach(filter::put);
+
+        assertThat(added).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> filter.put(UUID.randomUUID().toString()));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain(UUID.randomUUID().toString()))
+                .count();
+
+        assertThat(filter.bitSize()).isGreaterThanOrEqualTo(9586); // -n ln p / (ln 2)^2
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+}
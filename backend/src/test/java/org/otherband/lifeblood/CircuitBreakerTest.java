@@ -0,0 +1,74 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.notifications.CircuitBreaker;
+import org.otherband.lifeblood.notifications.CircuitBreaker.State;
+import org.otherband.lifeblood.notifications.CircuitBreakerConfig;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("whatsapp",
+            new CircuitBreakerConfig(3, Duration.ofSeconds(30), 2), meterRegistry, nanoTime::get);
+
+    @Test
+    void opensAfterFailuresInARowAndTurnsCallsAway() {
+        fail(2);
+        circuitBreaker.onSuccess();
+        fail(2);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+
+        fail(1);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.isCallPermitted()).isFalse();
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(circuitBreaker.retryAfter()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(meterRegistry.get("notifications.circuit.rejected").tag("channel", "whatsapp").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("notifications.circuit.state").tag("channel", "whatsapp").gauge().value())
+                .isEqualTo(State.OPEN.ordinal());
+    }
+
+    @Test
+    void closesOnceEveryTrialSucceeds() {
+        fail(3);
+        nanoTime.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+        circuitBreaker.onSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        circuitBreaker.onSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void reopensWhenATrialFails() {
+        fail(3);
+        nanoTime.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.retryAfter()).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+            circuitBreaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.generated.model.PushNotificationType;
+import org.otherband.lifeblood.notifications.CircuitBreaker;
+import org.otherband.lifeblood.notifications.CircuitBreakerConfig;
+import org.otherband.lifeblood.notifications.DelegatingNotificationSender;
+import org.otherband.lifeblood.notifications.DeliveryResult;
+import org.otherband.lifeblood.notifications.DeliveryResult.Outcome;
+import org.otherband.lifeblood.notifications.PermanentDeliveryException;
+import org.otherband.lifeblood.notifications.ThrottledDeliveryException;
+import org.otherband.lifeblood.notifications.push.FirebaseNotificationSender;
+import org.otherband.lifeblood.notifications.push.PushNotification;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageSender;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DelegatingNotificationSenderTest {
+
+    private final WhatsAppMessageSender whatsAppMessageSender = mock(WhatsAppMessageSender.class);
+    private final FirebaseNotificationSender firebaseNotificationSender = mock(FirebaseNotificationSender.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerConfig config = new CircuitBreakerConfig(3, Duration.ofMinutes(1), 1);
+    private final DelegatingNotificationSender sender = new DelegatingNotificationSender(whatsAppMessageSender,
+            firebaseNotificationSender,
+            Map.of(NotificationChannel.WHATSAPP_MESSAGES, new CircuitBreaker("whatsapp", config, meterRegistry),
+                    NotificationChannel.PUSH_NOTIFICATIONS, new CircuitBreaker("push", config, meterRegistry)));
+
+    @Test
+    void failingChannelIsSkippedWhileTheOtherKeepsSending() {
+        when(whatsAppMessageSender.sendAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("connect timed out")));
+        when(firebaseNotificationSender.sendAll(any())).thenReturn(List.of(DeliveryResult.sent()));
+        for (int i = 0; i < 3; i++) {
+            assertThat(sender.sendWhatsAppMessageAsync(new WhatsAppMessageEntity())).isCompletedExceptionally();
+        }
+
+        assertThat(sender.isAvailable(NotificationChannel.WHATSAPP_MESSAGES)).isFalse();
+        assertThat(sender.sendWhatsAppMessageAsync(new WhatsAppMessageEntity()))
+                .failsWithin(Duration.ZERO)
+                .withThrowableThat()
+                .havingCause()
+                .isInstanceOf(ThrottledDeliveryException.class);
+        verify(whatsAppMessageSender, times(3)).sendAsync(any());
+
+        assertThat(sender.isAvailable(NotificationChannel.PUSH_NOTIFICATIONS)).isTrue();
+        assertThat(sender.sendPushNotifications(List.of(firebase()))).containsExactly(DeliveryResult.sent());
+    }
+
+    @Test
+    void refusedMessagesDoNotOpenTheCircuit() {
+        when(whatsAppMessageSender.sendAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new PermanentDeliveryException("400 BAD_REQUEST", null)));
+
+        for (int i = 0; i < 5; i++) {
+            sender.sendWhatsAppMessageAsync(new WhatsAppMessageEntity());
+        }
+
+        assertThat(sender.isAvailable(NotificationChannel.WHATSAPP_MESSAGES)).isTrue();
+    }
+
+    @Test
+    void multicastBatchesThatFailEntirelyOpenThePushCircuit() {
+        when(firebaseNotificationSender.sendAll(any()))
+                .thenReturn(List.of(DeliveryResult.failed("UNAVAILABLE"), DeliveryResult.failed("UNAVAILABLE")));
+        for (int i = 0; i < 3; i++) {
+            sender.sendPushNotifications(List.of(firebase(), firebase()));
+        }
+
+        List<DeliveryResult> results = sender.sendPushNotifications(List.of(firebase(), firebase()));
+
+        assertThat(results).extracting(DeliveryResult::outcome).containsOnly(Outcome.THROTTLED);
+        verify(firebaseNotificationSender, times(3)).sendAll(any());
+        assertThat(sender.isAvailable(NotificationChannel.WHATSAPP_MESSAGES)).isTrue();
+    }
+
+    private static PushNotification firebase() {
+        return PushNotification.builder().pushNotificationType(PushNotificationType.FIREBASE).build();
+    }
+}
@@ -0,0 +1,139 @@
+package org.otherband.lifeblood;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.otherband.lifeblood.notifications.DeliveryResult;
+import org.otherband.lifeblood.notifications.DeliveryResult.Outcome;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.push.FirebaseNotificationSender;
+import org.otherband.lifeblood.notifications.push.PushNotification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FirebaseNotificationSenderTest {
+
+    private final FirebaseMessaging firebaseMessaging = mock(FirebaseMessaging.class);
+    private final FirebaseNotificationSender sender = new FirebaseNotificationSender(() -> firebaseMessaging);
+
+    @Test
+    void multicastsPerPayloadAndMapsResultsBackToRows() throws Exception {
+        NotificationPayloadEntity routine = payload(1L);
+        NotificationPayloadEntity urgent = payload(2L);
+        List<PushNotification> notifications = new ArrayList<>();
+        IntStream.range(0, 1001).forEach(i -> notifications.add(notification(i % 2 == 0 ? routine : urgent, "token-" + i)));
+        notifications.add(notification(routine, "unregistered-token"));
+        notifications.add(notification(urgent, "unavailable-token"));
+        notifications.add(notification(urgent, "malformed-token"));
+        when(firebaseMessaging.sendEachForMulticast(any())).thenAnswer(invocation -> {
+            MulticastMessage message = invocation.getArgument(0);
+            return batchResponse(tokens(message));
+        });
+
+        List<DeliveryResult> results = sender.sendAll(notifications);
+
+        ArgumentCaptor<MulticastMessage> messages = ArgumentCaptor.forClass(MulticastMessage.class);
+        verify(firebaseMessaging, times(4)).sendEachForMulticast(messages.capture());
+        assertThat(messages.getAllValues()).extracting(message -> tokens(message).size())
+                .containsExactly(500, 2, 500, 2);
+        assertThat(results).hasSize(notifications.size());
+        assertThat(results.subList(0, 1001)).allMatch(DeliveryResult::isSent);
+        assertThat(results.get(1001).outcome()).isEqualTo(Outcome.INVALID_TOKEN);
+        assertThat(results.get(1002).outcome()).isEqualTo(Outcome.FAILED);
+        assertThat(results.get(1002).error()).startsWith("UNAVAILABLE");
+        assertThat(results.get(1003).outcome()).isEqualTo(Outcome.INVALID_TOKEN);
+    }
+
+    @Test
+    void messageRefusedForEveryTokenIsRejectedWithoutBlamingTheTokens() throws Exception {
+        when(firebaseMessaging.sendEachForMulticast(any())).thenAnswer(invocation -> {
+            MulticastMessage message = invocation.getArgument(0);
+            return batchResponse(tokens(message).stream().map(token -> "malformed-token").toList());
+        });
+
+        List<DeliveryResult> results = sender.sendAll(List.of(notification(payload(1L), "a"),
+                notification(payload(1L), "b"), notification(payload(1L), "c")));
+
+        assertThat(results).hasSize(3).allSatisfy(result -> {
+            assertThat(result.outcome()).isEqualTo(Outcome.REJECTED);
+            assertThat(result.error()).startsWith("INVALID_ARGUMENT");
+        });
+    }
+
+    @Test
+    void failedMulticastFailsEveryRow() throws Exception {
+        FirebaseMessagingException exception = mock(FirebaseMessagingException.class);
+        when(exception.getMessage()).thenReturn("connection reset");
+        when(firebaseMessaging.sendEachForMulticast(any())).thenThrow(exception);
+
+        List<DeliveryResult> results = sender.sendAll(List.of(notification(payload(1L), "a"), notification(payload(1L), "b")));
+
+        assertThat(results).containsExactly(DeliveryResult.failed("connection reset"),
+                DeliveryResult.failed("connection reset"));
+    }
+
+    private static BatchResponse batchResponse(List<String> tokens) {
+        List<SendResponse> responses = tokens.stream()
+                .map(token -> switch (token) {
+                    case "unregistered-token" -> failedResponse(MessagingErrorCode.UNREGISTERED);
+                    case "unavailable-token" -> failedResponse(MessagingErrorCode.UNAVAILABLE);
+                    case "malformed-token" -> failedResponse(MessagingErrorCode.INVALID_ARGUMENT);
+                    default -> successfulResponse();
+                })
+                .toList();
+        BatchResponse batchResponse = mock(BatchResponse.class);
+        when(batchResponse.getResponses()).thenReturn(responses);
+        return batchResponse;
+    }
+
+    private static SendResponse successfulResponse() {
+        SendResponse response = mock(SendResponse.class);
+        when(response.isSuccessful()).thenReturn(true);
+        return response;
+    }
+
+    private static SendResponse failedResponse(MessagingErrorCode errorCode) {
+        FirebaseMessagingException exception = mock(FirebaseMessagingException.class);
+        when(exception.getMessagingErrorCode()).thenReturn(errorCode);
+        SendResponse response = mock(SendResponse.class);
+        when(response.getException()).thenReturn(exception);
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> tokens(MulticastMessage message) {
+        try {
+            var field = MulticastMessage.class.getDeclaredField("tokens");
+            field.setAccessible(true);
+            return (List<String>) field.get(message);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static NotificationPayloadEntity payload(long id) {
+        return NotificationPayloadEntity.builder()
+                .id(id)
+                .pushTitle("Routine alert")
+                .pushBody("Donation request")
+                .build();
+    }
+
+    private static PushNotification notification(NotificationPayloadEntity payload, String token) {
+        return PushNotification.builder()
+                .payload(payload)
+                .userToken(token)
+                .build();
+    }
+}
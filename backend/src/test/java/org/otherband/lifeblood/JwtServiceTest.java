@@ -1,13 +1,16 @@
 package org.otherband.lifeblood;
 
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.security.SignatureException;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.auth.JwtPrincipal;
 import org.otherband.lifeblood.auth.JwtService;
 import org.otherband.lifeblood.auth.RefreshTokenRepository;
 import org.otherband.lifeblood.volunteer.UserDetails;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
@@ -73,8 +76,7 @@ class JwtServiceTest {
 
         assertFalse(jwtService.isValidToken(token));
 
-        assertThrows(SignatureException.class, () -> jwtService.extractSubject(token));
-        assertThrows(SignatureException.class, () -> jwtService.extractRoles(token));
+        assertThrows(SignatureException.class, () -> jwtService.verify(token));
     }
 
     @Test
@@ -97,17 +99,21 @@ class JwtServiceTest {
         String userUuid = UUID.randomUUID().toString();
         String token = jwtService.generateToken(userDetails, userUuid);
 
-        String extractedSubject = jwtService.extractSubject(token);
-        List<String> extractedRoles = jwtService.extractRoles(token);
+        JwtPrincipal principal = jwtService.verify(token);
         boolean isValid = jwtService.isValidToken(token);
 
-        assertEquals(phoneNumber, extractedSubject);
-        assertEquals(userUuid, jwtService.extractUuid(token));
-        assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"), extractedRoles);
+        assertNotNull(principal.tokenId());
+        assertNotEquals(principal.tokenId(), jwtService.verify(jwtService.generateToken(userDetails, userUuid)).tokenId());
+        assertEquals(phoneNumber, principal.subject());
+        assertEquals(userUuid, principal.userUuid());
+        assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"), principal.roles());
+        assertThrows(UnsupportedOperationException.class, () -> principal.roles().add("ROLE_DOCTOR"));
+        assertTrue(principal.expiresAt().isAfter(startTime.plusMinutes(14).atZone(ZoneId.systemDefault()).toInstant()));
         assertTrue(isValid);
 
         when(timeService.now()).thenReturn(startTime.plusMinutes(16)); // expired
         assertFalse(jwtService.isValidToken(token));
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
     }
 
     private static JwtService buildJwtService(TimeService timeService) {
@@ -119,7 +125,7 @@ class JwtServiceTest {
     }
 
     private static JwtService buildJwtService(String secretKey, TimeService timeService) {
-        return new JwtService(secretKey, 15, timeService, repoMock());
+        return new JwtService(secretKey, 15, 30, timeService, repoMock());
     }
 
     private static TimeService timeServiceMock() {
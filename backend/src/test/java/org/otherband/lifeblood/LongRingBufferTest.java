@@ -0,0 +1,60 @@
+package org.otherband.lifeblood;
+
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.notifications.handoff.LongRingBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertThat(new LongRingBuffer(1).capacity()).isEqualTo(1);
+        assertThat(new LongRingBuffer(5).capacity()).isEqualTo(8);
+        assertThat(new LongRingBuffer(8).capacity()).isEqualTo(8);
+    }
+
+    @Test
+    void keepsOrderAcrossWrapAround() {
+        LongRingBuffer buffer = new LongRingBuffer(4);
+        long[] target = new long[3];
+
+        for (long round = 0; round < 5; round++) {
+            assertThat(buffer.offer(new long[]{round * 3, round * 3 + 1, round * 3 + 2})).isEqualTo(3);
+            assertThat(buffer.drainTo(target)).isEqualTo(3);
+            assertThat(target).containsExactly(round * 3, round * 3 + 1, round * 3 + 2);
+        }
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void refusesWhatDoesNotFitAndDrainsAtMostTheTarget() {
+        LongRingBuffer buffer = new LongRingBuffer(4);
+
+        assertThat(buffer.offer(new long[]{1, 2, 3})).isEqualTo(3);
+        assertThat(buffer.offer(new long[]{4, 5, 6})).isEqualTo(1);
+        assertThat(buffer.size()).isEqualTo(4);
+
+        long[] target = new long[3];
+        assertThat(buffer.drainTo(target)).isEqualTo(3);
+        assertThat(target).containsExactly(1, 2, 3);
+        Arrays.fill(target, 0);
+        assertThat(buffer.drainTo(target)).isEqualTo(1);
+        assertThat(target).containsExactly(4, 0, 0);
+        assertThat(buffer.drainTo(target)).isZero();
+    }
+
+    @Test
+    void offersKeysReadStraightFromTheValues() {
+        LongRingBuffer buffer = new LongRingBuffer(2);
+
+        assertThat(buffer.offer(List.of("a", "bb", "ccc"), String::length)).isEqualTo(2);
+
+        long[] target = new long[2];
+        assertThat(buffer.drainTo(target)).isEqualTo(2);
+        assertThat(target).containsExactly(1, 2);
+    }
+}
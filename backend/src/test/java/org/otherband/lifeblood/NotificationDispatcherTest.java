@@ -0,0 +1,87 @@
+package org.otherband.lifeblood;
+
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.jobs.NotificationDispatcher;
+import org.otherband.lifeblood.notifications.DeliveryResult;
+import org.otherband.lifeblood.notifications.DeliveryResult.Outcome;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationDispatcherTest {
+
+    @Test
+    void sendsConcurrentlyWithinChannelLimit() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Integer> notifications = IntStream.range(0, 200).boxed().toList();
+
+        List<DeliveryResult> results;
+        try (NotificationDispatcher dispatcher = NotificationDispatcher.virtualThreads(8, 4)) {
+            results = dispatcher.dispatchEach(NotificationChannel.PUSH_NOTIFICATIONS, notifications, notification -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                sleep(ThreadLocalRandom.current().nextInt(1, 5));
+                inFlight.decrementAndGet();
+                if (notification % 10 == 0) {
+                    throw new IllegalStateException("provider rejected [%s]".formatted(notification));
+                }
+            });
+        }
+
+        assertThat(maxInFlight.get()).isBetween(2, 4);
+        assertThat(results).hasSize(200);
+        for (int notification = 0; notification < results.size(); notification++) {
+            DeliveryResult result = results.get(notification);
+            if (notification % 10 == 0) {
+                assertThat(result.error()).isEqualTo("provider rejected [%s]".formatted(notification));
+            } else {
+                assertThat(result.isSent()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void sequentialDispatchIsolatesFailures() {
+        try (NotificationDispatcher dispatcher = NotificationDispatcher.sequential()) {
+            List<DeliveryResult> results = dispatcher.dispatchEach(NotificationChannel.WHATSAPP_MESSAGES,
+                    List.of("a", "b", "c"),
+                    notification -> {
+                        if (notification.equals("b")) {
+                            throw new IllegalStateException("provider rejected");
+                        }
+                    });
+            assertThat(results).extracting(DeliveryResult::outcome)
+                    .containsExactly(Outcome.SENT, Outcome.FAILED, Outcome.SENT);
+        }
+    }
+
+    @Test
+    void batchesKeepTheirOrder() {
+        try (NotificationDispatcher dispatcher = NotificationDispatcher.virtualThreads(8, 4)) {
+            List<Integer> notifications = IntStream.range(0, 1234).boxed().toList();
+            List<DeliveryResult> results = dispatcher.dispatch(NotificationChannel.PUSH_NOTIFICATIONS, notifications,
+                    500,
+                    batch -> {
+                        assertThat(batch.size()).isLessThanOrEqualTo(500);
+                        return batch.stream()
+                                .map(notification -> DeliveryResult.failed(String.valueOf(notification)))
+                                .toList();
+                    });
+            assertThat(results).extracting(DeliveryResult::error)
+                    .isEqualTo(notifications.stream().map(String::valueOf).toList());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
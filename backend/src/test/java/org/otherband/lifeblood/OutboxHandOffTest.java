@@ -0,0 +1,44 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.generated.model.NotificationChannel;
+import org.otherband.lifeblood.notifications.handoff.OutboxHandOff;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxHandOffTest {
+
+    @Test
+    void wakesTheConsumerOnItsNotifierThread() throws InterruptedException {
+        CountDownLatch woken = new CountDownLatch(1);
+        try (OutboxHandOff handOff = new OutboxHandOff(true, 4, new SimpleMeterRegistry())) {
+            handOff.onPublish(woken::countDown);
+
+            handOff.publishAfterCommit(NotificationChannel.WHATSAPP_MESSAGES, List.of(message(7L), message(9L)));
+
+            assertThat(woken.await(5, TimeUnit.SECONDS)).isTrue();
+            long[] target = new long[4];
+            assertThat(handOff.drainTo(NotificationChannel.WHATSAPP_MESSAGES, target)).isEqualTo(2);
+            assertThat(target).startsWith(7L, 9L);
+        }
+    }
+
+    @Test
+    void queuesNothingWhenDisabled() {
+        try (OutboxHandOff handOff = new OutboxHandOff(false, 4, new SimpleMeterRegistry())) {
+            handOff.publishAfterCommit(NotificationChannel.WHATSAPP_MESSAGES, List.of(message(7L)));
+
+            assertThat(handOff.drainTo(NotificationChannel.WHATSAPP_MESSAGES, new long[4])).isZero();
+        }
+    }
+
+    private static WhatsAppMessageEntity message(long id) {
+        return WhatsAppMessageEntity.builder().id(id).build();
+    }
+}
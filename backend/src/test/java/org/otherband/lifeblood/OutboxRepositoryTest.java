@@ -0,0 +1,185 @@
+package org.otherband.lifeblood;
+
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.generated.model.PushNotificationType;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.NotificationPayloadRepository;
+import org.otherband.lifeblood.notifications.NotificationPriority;
+import org.otherband.lifeblood.notifications.push.PushNotification;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
+import org.otherband.lifeblood.volunteer.VolunteerEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OutboxRepositoryTest extends BaseTest {
+
+    @Autowired
+    private NotificationPayloadRepository notificationPayloadRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void recordsOutcomesWithSetBasedUpdates() {
+        List<Long> ids = saveMessages(5, NotificationPriority.NORMAL);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(whatsAppMessageRepository.markSent(ids.subList(0, 3))).isEqualTo(3);
+            assertThat(whatsAppMessageRepository.markFailed(ids.subList(3, 4), "timeout", LocalDateTime.now()))
+                    .isEqualTo(1);
+            assertThat(whatsAppMessageRepository.markDeadLettered(ids.subList(4, 5), "invalid number")).isEqualTo(1);
+        });
+
+        List<WhatsAppMessageEntity> messages = whatsAppMessageRepository.findAllById(ids);
+        assertThat(messages).filteredOn(WhatsAppMessageEntity::isSent)
+                .extracting(WhatsAppMessageEntity::getId)
+                .containsExactlyInAnyOrderElementsOf(ids.subList(0, 3));
+        assertThat(messages).filteredOn(message -> message.getId().equals(ids.get(3)))
+                .singleElement()
+                .satisfies(message -> {
+                    assertThat(message.isSent()).isFalse();
+                    assertThat(message.getLastError()).isEqualTo("timeout");
+                    assertThat(message.getAttempts()).isEqualTo(1);
+                });
+        assertThat(messages).filteredOn(message -> message.getId().equals(ids.get(4)))
+                .singleElement()
+                .satisfies(message -> {
+                    assertThat(message.isDeadLettered()).isTrue();
+                    assertThat(message.getLastError()).isEqualTo("invalid number");
+                });
+    }
+
+    @Test
+    void claimedRowsAreSkippedUntilTheirLeaseExpires() {
+        // a lane of its own so rows written by concurrently running tests do not interfere
+        List<Long> ids = saveMessages(3, NotificationPriority.HIGH);
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> claimed = claimableIds(now, ids);
+            assertThat(claimed).containsExactlyElementsOf(ids);
+            whatsAppMessageRepository.claim(claimed.subList(0, 2), "node-1", now.plusMinutes(2));
+        });
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(claimableIds(now, ids)).containsExactly(ids.get(2)));
+        // node-1 died, its lease runs out
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(claimableIds(now.plusMinutes(3), ids)).containsExactly(ids.get(2), ids.get(0), ids.get(1)));
+        // recording an outcome releases the lease
+        transactionTemplate.executeWithoutResult(status ->
+                whatsAppMessageRepository.markFailed(ids.subList(0, 1), "timeout", now.minusSeconds(1)));
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(claimableIds(now, ids)).containsExactlyInAnyOrder(ids.get(2), ids.get(0)));
+    }
+
+    @Test
+    void failedRowsAreSkippedUntilTheirNextAttempt() {
+        List<Long> ids = saveMessages(2, NotificationPriority.CRITICAL);
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status ->
+                whatsAppMessageRepository.markFailed(ids.subList(0, 1), "timeout", now.plusSeconds(30)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(claimableIds(NotificationPriority.CRITICAL, now, ids)).containsExactly(ids.get(1));
+            assertThat(claimableIds(NotificationPriority.CRITICAL, now.plusMinutes(1), ids))
+                    .containsExactlyElementsOf(ids.reversed());
+        });
+    }
+
+    @Test
+    void handedOffRowsAreOnlyClaimableWhileStillDue() {
+        List<Long> ids = saveMessages(3, NotificationPriority.NORMAL);
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            whatsAppMessageRepository.claim(ids.subList(0, 1), "node-2", now.plusMinutes(2));
+            whatsAppMessageRepository.markSent(ids.subList(1, 2));
+        });
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(whatsAppMessageRepository.findClaimableByIdIn(ids, now))
+                        .extracting(WhatsAppMessageEntity::getId)
+                        .containsExactly(ids.get(2)));
+    }
+
+    @Test
+    void deadTokensAreClearedAndOnlyTheirPendingRowsCancelled() {
+        String deadToken = UUID.randomUUID().toString();
+        String liveToken = UUID.randomUUID().toString();
+        VolunteerEntity volunteer = new VolunteerEntity();
+        volunteer.setUuid(UUID.randomUUID().toString());
+        volunteer.setPhoneNumber(randomPhoneNumber());
+        volunteer.setPushNotificationToken(deadToken);
+        volunteer.setNotificationChannels(List.of("PUSH_NOTIFICATIONS"));
+        volunteer = volunteerJpaRepository.save(volunteer);
+        NotificationPayloadEntity payload = notificationPayloadRepository.save(NotificationPayloadEntity.builder()
+                .pushTitle("Routine alert")
+                .build());
+        List<PushNotification> pushNotifications = pushNotificationRepository.saveAll(List.of(
+                pushNotification(payload, deadToken, false),
+                pushNotification(payload, deadToken, true),
+                pushNotification(payload, liveToken, false)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(volunteerJpaRepository.clearPushNotificationTokens(List.of(deadToken))).isEqualTo(1);
+            assertThat(pushNotificationRepository.cancelForTokens(List.of(deadToken), "gone")).isEqualTo(1);
+        });
+
+        assertThat(volunteerJpaRepository.findById(volunteer.getId()).orElseThrow().getPushNotificationToken()).isNull();
+        assertThat(pushNotificationRepository.findAllById(pushNotifications.stream().map(PushNotification::getId).toList()))
+                .extracting(PushNotification::getUserToken, PushNotification::isSent, PushNotification::isDeadLettered)
+                .containsExactlyInAnyOrder(
+                        tuple(deadToken, false, true),
+                        tuple(deadToken, true, false),
+                        tuple(liveToken, false, false));
+    }
+
+    private List<Long> claimableIds(LocalDateTime now, List<Long> ids) {
+        return claimableIds(NotificationPriority.HIGH, now, ids);
+    }
+
+    private List<Long> claimableIds(NotificationPriority priority, LocalDateTime now, List<Long> ids) {
+        return whatsAppMessageRepository.findClaimable(priority, now, Limit.unlimited())
+                .stream()
+                .map(WhatsAppMessageEntity::getId)
+                .filter(ids::contains)
+                .toList();
+    }
+
+    private static PushNotification pushNotification(NotificationPayloadEntity payload, String token, boolean sent) {
+        return PushNotification.builder()
+                .payload(payload)
+                .userToken(token)
+                .pushNotificationType(PushNotificationType.FIREBASE)
+                .sent(sent)
+                .build();
+    }
+
+    private List<Long> saveMessages(int count, NotificationPriority priority) {
+        NotificationPayloadEntity payload = notificationPayloadRepository.save(NotificationPayloadEntity.builder()
+                .templateName("donation_alert")
+                .templateVariables(List.of("Routine", "Hospital", ""))
+                .build());
+        return whatsAppMessageRepository.saveAll(IntStream.range(0, count)
+                        .mapToObj(i -> WhatsAppMessageEntity.builder()
+                                .payload(payload)
+                                .priority(priority)
+                                .phoneNumber(randomPhoneNumber())
+                                .build())
+                        .toList())
+                .stream()
+                .map(WhatsAppMessageEntity::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,80 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.auth.PasswordHasher;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    @Test
+    void hashesAreRedoneWhenTheConfiguredCostGoesUp() {
+        String weakHash = new BCryptPasswordEncoder(4).encode("password");
+
+        try (PasswordHasher sameCost = new PasswordHasher(new BCryptPasswordEncoder(4), 1, 1, new SimpleMeterRegistry());
+             PasswordHasher higherCost = new PasswordHasher(new BCryptPasswordEncoder(5), 1, 1, new SimpleMeterRegistry())) {
+            assertThat(sameCost.matches("password", weakHash)).isTrue();
+            assertThat(sameCost.rehash("password", weakHash)).isEmpty();
+
+            assertThat(higherCost.matches("password", weakHash)).isTrue();
+            assertThat(higherCost.rehash("password", weakHash)).hasValueSatisfying(rehashed -> {
+                assertThat(rehashed).startsWith("$2a$05$");
+                assertThat(higherCost.matches("password", rehashed)).isTrue();
+                assertThat(higherCost.rehash("password", rehashed)).isEmpty();
+            });
+        }
+    }
+
+    @Test
+    void callersAreTurnedAwayOnceTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (PasswordHasher hasher = new PasswordHasher(blockingEncoder(started, release), 1, 1, meterRegistry)) {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.encode("first"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.encode("second"));
+            while (meterRegistry.get("auth.password.hashing.queue").gauge().value() < 1) {
+                Thread.sleep(10);
+            }
+
+            assertThatThrownBy(() -> hasher.encode("third"))
+                    .isInstanceOfSatisfying(ServiceOverloadedException.class,
+                            e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1)));
+            assertThat(meterRegistry.get("auth.password.hashing.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hashed-first");
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hashed-second");
+        }
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed-" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.auth.JwtService;
+import org.otherband.lifeblood.auth.RefreshTokenEntity;
+import org.otherband.lifeblood.auth.RefreshTokenRepository;
+import org.otherband.lifeblood.auth.RevokedTokenEntity;
+import org.otherband.lifeblood.auth.RevokedTokenRepository;
+import org.otherband.lifeblood.auth.TokenDigest;
+import org.otherband.lifeblood.generated.model.LoginRequest;
+import org.otherband.lifeblood.generated.model.RefreshTokenRequest;
+import org.otherband.lifeblood.jobs.ExpiredTokenSweeper;
+import org.otherband.lifeblood.volunteer.UserDetails;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.otherband.lifeblood.auth.AuthController.AUTH_API;
+import static org.otherband.lifeblood.auth.AuthController.REFRESH_TOKEN_HEADER;
+
+class RefreshTokenTest extends BaseTest {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private TimeService timeService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${jwt.secret.key}")
+    private String secretKey;
+
+    @Test
+    void refreshTokensAreRotatedOnUse() {
+        String refreshToken = login(doctorLogin()).getRefreshToken();
+        LocalDateTime familyExpiry = find(refreshToken).getExpiresAt();
+
+        MockHttpServletResponse first = refresh(refreshToken);
+        assertThat(first.getStatus()).isEqualTo(200);
+        String rotated = first.getHeader(REFRESH_TOKEN_HEADER);
+        assertThat(rotated).isNotNull().isNotEqualTo(refreshToken);
+        MockHttpServletResponse second = refresh(rotated);
+        assertThat(second.getStatus()).isEqualTo(200);
+        String latest = second.getHeader(REFRESH_TOKEN_HEADER);
+        assertThat(find(refreshToken).getRotatedAt()).isNotNull();
+        assertThat(find(latest).getFamilyId()).isEqualTo(find(refreshToken).getFamilyId());
+        // rotating does not extend the session past the expiry set at login
+        assertThat(find(latest).getExpiresAt()).isEqualTo(familyExpiry);
+    }
+
+    @Test
+    void rotatedTokensAreSweptOnceReuseNoLongerNeedsDetecting() {
+        // access tokens that expire at once leave rotated tokens nothing to be kept for
+        JwtService jwtService = new JwtService(secretKey, 0, 0, timeService, refreshTokenRepository);
+        UserDetails user = UserDetails.builder().phoneNumber(randomPhoneNumber()).roles(List.of()).build();
+        String userUuid = UUID.randomUUID().toString();
+        String refreshToken = jwtService.generateRefreshToken(user, userUuid);
+        RefreshTokenEntity used = find(refreshToken);
+
+        String rotated = transactionTemplate.execute(status -> jwtService.rotateRefreshToken(used, user, userUuid))
+                .orElseThrow();
+        new ExpiredTokenSweeper(refreshTokenRepository, revokedTokenRepository, timeService, transactionTemplate,
+                new SimpleMeterRegistry(), 100)
+                .purgeExpired();
+
+        assertThat(refreshTokenRepository.findById(used.getId())).isEmpty();
+        assertThat(find(rotated).getExpiresAt()).isEqualTo(used.getExpiresAt());
+    }
+
+    @Test
+    void replaysWithinTheGracePeriodGetNoNewRefreshToken() {
+        String refreshToken = login(doctorLogin()).getRefreshToken();
+        String rotated = refresh(refreshToken).getHeader(REFRESH_TOKEN_HEADER);
+
+        // requests already sent with the old token still go through, but do not fork the family
+        MockHttpServletResponse replay = refresh(refreshToken);
+        assertThat(replay.getStatus()).isEqualTo(200);
+        assertThat(replay.getHeader(REFRESH_TOKEN_HEADER)).isNull();
+        assertThat(refresh(rotated).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void replaysAfterTheGracePeriodRevokeTheWholeFamily() {
+        String refreshToken = login(doctorLogin()).getRefreshToken();
+        String rotated = refresh(refreshToken).getHeader(REFRESH_TOKEN_HEADER);
+        String latest = refresh(rotated).getHeader(REFRESH_TOKEN_HEADER);
+        String otherSession = login(doctorLogin()).getRefreshToken();
+
+        RefreshTokenEntity used = find(refreshToken);
+        used.setRotatedAt(timeService.now().minusMinutes(1));
+        refreshTokenRepository.save(used);
+
+        assertThat(refresh(refreshToken).getStatus()).isEqualTo(401);
+        assertThat(refresh(latest).getStatus()).isEqualTo(401);
+        assertThat(refreshTokenRepository.findByTokenDigest(TokenDigest.sha256(rotated))).isEmpty();
+        assertThat(refresh(otherSession).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void expiredTokensArePurgedInBatches() {
+        LocalDateTime now = timeService.now();
+        List<Long> expired = IntStream.range(0, 5).mapToObj(i -> saveToken(now.minusMinutes(1))).toList();
+        Long live = saveToken(now.plusDays(1));
+        Long expiredRevocation = revokedTokenRepository.save(RevokedTokenEntity.builder()
+                .tokenId(UUID.randomUUID().toString())
+                .subject(randomPhoneNumber())
+                .revokedAt(now.minusMinutes(20))
+                .expiresAt(now.minusMinutes(5))
+                .build()).getId();
+
+        new ExpiredTokenSweeper(refreshTokenRepository, revokedTokenRepository, timeService, transactionTemplate,
+                new SimpleMeterRegistry(), 2)
+                .purgeExpired();
+
+        assertThat(refreshTokenRepository.findAllById(expired)).isEmpty();
+        assertThat(refreshTokenRepository.findById(live)).isPresent();
+        assertThat(revokedTokenRepository.findById(expiredRevocation)).isEmpty();
+    }
+
+    private Long saveToken(LocalDateTime expiresAt) {
+        RefreshTokenEntity entity = new RefreshTokenEntity();
+        entity.setPhoneNumber(randomPhoneNumber());
+        entity.setTokenDigest(TokenDigest.sha256(UUID.randomUUID().toString()));
+        entity.setExpiresAt(expiresAt);
+        entity.setFamilyId(UUID.randomUUID().toString());
+        return refreshTokenRepository.save(entity).getId();
+    }
+
+    private RefreshTokenEntity find(String refreshToken) {
+        return refreshTokenRepository.findByTokenDigest(TokenDigest.sha256(refreshToken)).orElseThrow();
+    }
+
+    private static LoginRequest doctorLogin() {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setPhoneNumber(DOCTOR_PHONE_NUMBER);
+        loginRequest.setPassword(DOCTOR_PASSWORD);
+        return loginRequest;
+    }
+
+    @SneakyThrows
+    private MockHttpServletResponse refresh(String refreshToken) {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setPhoneNumber(DOCTOR_PHONE_NUMBER);
+        request.setRefreshToken(refreshToken);
+        return mockMvc.perform(MockMvcRequestBuilders.post(AUTH_API.concat("/refresh"))
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(request)))
+                .andReturn()
+                .getResponse();
+    }
+}
@@ -0,0 +1,120 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.auth.JwtPrincipal;
+import org.otherband.lifeblood.auth.RevokedTokenEntity;
+import org.otherband.lifeblood.auth.RevokedTokenRepository;
+import org.otherband.lifeblood.auth.TokenRevocationList;
+import org.otherband.lifeblood.generated.model.LoginRequest;
+import org.otherband.lifeblood.generated.model.LoginResponse;
+import org.otherband.lifeblood.generated.model.RefreshTokenRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.otherband.lifeblood.auth.AuthController.AUTH_API;
+
+class TokenRevocationTest extends BaseTest {
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private TimeService timeService;
+
+    @Test
+    void loggingOutRevokesTheAccessAndRefreshTokens() {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setPhoneNumber(DOCTOR_PHONE_NUMBER);
+        loginRequest.setPassword(DOCTOR_PASSWORD);
+        LoginResponse loginResponse = login(loginRequest);
+        String accessToken = getAuthToken(DOCTOR_PHONE_NUMBER, loginResponse.getRefreshToken());
+
+        assertThat(logout(accessToken, loginResponse.getRefreshToken())).isEqualTo(200);
+
+        // the filter no longer authenticates the token, so it cannot even log out again
+        assertThat(logout(accessToken, loginResponse.getRefreshToken())).isEqualTo(401);
+        assertThat(refresh(loginResponse.getRefreshToken())).isEqualTo(401);
+    }
+
+    @Test
+    void revocationsFromOtherNodesArePickedUpAndExpiredOnesForgotten() {
+        TokenRevocationList revocationList = new TokenRevocationList(revokedTokenRepository, timeService,
+                new SimpleMeterRegistry(), 4, 0.01);
+        LocalDateTime now = timeService.now();
+        String live = saveRevocation(now, now.plusMinutes(10));
+        String expired = saveRevocation(now, now.minusSeconds(1));
+        assertThat(revocationList.isRevoked(live)).isFalse();
+
+        revocationList.sync();
+
+        assertThat(revocationList.isRevoked(live)).isTrue();
+        assertThat(revocationList.isRevoked(expired)).isFalse();
+        assertThat(revocationList.isRevoked(UUID.randomUUID().toString())).isFalse();
+        assertThat(revocationList.isRevoked(null)).isFalse();
+        // a new node loads every revocation still live
+        assertThat(new TokenRevocationList(revokedTokenRepository, timeService, new SimpleMeterRegistry(), 4, 0.01)
+                .isRevoked(live)).isTrue();
+    }
+
+    @Test
+    void revokingATokenAlreadyStoredByAConcurrentLogoutSucceeds() {
+        TokenRevocationList revocationList = new TokenRevocationList(revokedTokenRepository, timeService,
+                new SimpleMeterRegistry(), 4, 0.01);
+        LocalDateTime now = timeService.now();
+        String tokenId = saveRevocation(now, now.plusMinutes(10));
+
+        revocationList.revoke(new JwtPrincipal(tokenId, randomPhoneNumber(), null, List.of(),
+                now.plusMinutes(10).atZone(timeService.getZoneId()).toInstant()));
+
+        assertThat(revocationList.isRevoked(tokenId)).isTrue();
+    }
+
+    private String saveRevocation(LocalDateTime revokedAt, LocalDateTime expiresAt) {
+        String tokenId = UUID.randomUUID().toString();
+        revokedTokenRepository.save(RevokedTokenEntity.builder()
+                .tokenId(tokenId)
+                .subject(randomPhoneNumber())
+                .revokedAt(revokedAt)
+                .expiresAt(expiresAt)
+                .build());
+        return tokenId;
+    }
+
+    @SneakyThrows
+    private int logout(String accessToken, String refreshToken) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        return mockMvc.perform(MockMvcRequestBuilders.post(AUTH_API.concat("/logout"))
+                        .headers(headers)
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(refreshTokenRequest(refreshToken))))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+    }
+
+    @SneakyThrows
+    private int refresh(String refreshToken) {
+        return mockMvc.perform(MockMvcRequestBuilders.post(AUTH_API.concat("/refresh"))
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(refreshTokenRequest(refreshToken))))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+    }
+
+    private static RefreshTokenRequest refreshTokenRequest(String refreshToken) {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setPhoneNumber(DOCTOR_PHONE_NUMBER);
+        request.setRefreshToken(refreshToken);
+        return request;
+    }
+}
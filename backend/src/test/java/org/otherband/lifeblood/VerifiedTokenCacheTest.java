@@ -0,0 +1,102 @@
+package org.otherband.lifeblood;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.auth.JwtPrincipal;
+import org.otherband.lifeblood.auth.VerifiedTokenCache;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VerifiedTokenCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Test
+    void repeatedTokensAreVerifiedOnce() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, timeService(NOW), meterRegistry);
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, JwtPrincipal> verifier = counting(verifications, principal("user", NOW.plusHours(1)));
+
+        assertThat(cache.verify("token", verifier).subject()).isEqualTo("user");
+        assertThat(cache.verify("token", verifier).subject()).isEqualTo("user");
+        cache.verify("other-token", verifier);
+
+        assertThat(verifications).hasValue(2);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "jwt.verified.tokens").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedPrincipalsDoNotOutliveTheirToken() {
+        TimeService timeService = timeService(NOW);
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, timeService, new SimpleMeterRegistry());
+        cache.verify("token", token -> principal("user", NOW.plusMinutes(5)));
+
+        when(timeService.now()).thenReturn(NOW.plusMinutes(6));
+        ExpiredJwtException expired = new ExpiredJwtException(null, null, "expired");
+        assertThatThrownBy(() -> cache.verify("token", token -> {
+            throw expired;
+        })).isSameAs(expired);
+    }
+
+    @Test
+    void invalidatedTokensAreVerifiedAgain() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(true, 100, timeService(NOW), new SimpleMeterRegistry());
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, JwtPrincipal> verifier = counting(verifications, principal("user", NOW.plusHours(1)));
+        cache.verify("token", verifier);
+        cache.verify("second-token", verifier);
+
+        cache.invalidate("token");
+        cache.verify("token", verifier);
+        assertThat(verifications).hasValue(3);
+
+        cache.invalidateSubject("user");
+        cache.verify("token", verifier);
+        cache.verify("second-token", verifier);
+        assertThat(verifications).hasValue(5);
+    }
+
+    @Test
+    void disabledCacheAlwaysVerifies() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(false, 100, timeService(NOW), new SimpleMeterRegistry());
+        AtomicInteger verifications = new AtomicInteger();
+        Function<String, JwtPrincipal> verifier = counting(verifications, principal("user", NOW.plusHours(1)));
+
+        cache.verify("token", verifier);
+        cache.verify("token", verifier);
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    private static Function<String, JwtPrincipal> counting(AtomicInteger verifications, JwtPrincipal principal) {
+        return token -> {
+            verifications.incrementAndGet();
+            return principal;
+        };
+    }
+
+    private static JwtPrincipal principal(String subject, LocalDateTime expiresAt) {
+        return new JwtPrincipal(UUID.randomUUID().toString(), subject, "uuid", List.of("VOLUNTEER"),
+                expiresAt.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static TimeService timeService(LocalDateTime now) {
+        TimeService timeService = mock(TimeService.class);
+        when(timeService.now()).thenReturn(now);
+        when(timeService.getZoneId()).thenReturn(ZoneId.systemDefault());
+        return timeService;
+    }
+}
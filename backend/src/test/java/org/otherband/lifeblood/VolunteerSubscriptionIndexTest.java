@@ -0,0 +1,61 @@
+package org.otherband.lifeblood;
+
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.alert.AlertEntity;
+import org.otherband.lifeblood.alert.AlertListenersFinder;
+import org.otherband.lifeblood.generated.model.AlertLevel;
+import org.otherband.lifeblood.hospital.HospitalEntity;
+import org.otherband.lifeblood.volunteer.VolunteerJpaRepository;
+import org.otherband.lifeblood.volunteer.VolunteerSubscription;
+import org.otherband.lifeblood.volunteer.VolunteerSubscriptionIndex;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VolunteerSubscriptionIndexTest {
+
+    private static final long HOSPITAL_ID = 1;
+
+    @Test
+    void volunteerIdsBeyondTheIntRangeAreIndexedAndFannedOut() {
+        VolunteerJpaRepository volunteerJpaRepository = mock(VolunteerJpaRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        long loaded = 3_000_000_000L;
+        long synced = 5_000_000_000L;
+        when(volunteerJpaRepository.streamSubscriptions())
+                .thenReturn(Stream.of(new VolunteerSubscription(7, HOSPITAL_ID, 0),
+                        new VolunteerSubscription(loaded, HOSPITAL_ID, 0)));
+        when(volunteerJpaRepository.findSubscriptionsUpdatedAfter(any()))
+                .thenReturn(List.of(new VolunteerSubscription(synced, HOSPITAL_ID, 0)));
+        VolunteerSubscriptionIndex index = new VolunteerSubscriptionIndex(volunteerJpaRepository, transactionTemplate,
+                new TimeService());
+
+        index.rebuild();
+        index.sync();
+
+        assertThat(index.findSubscribers(HOSPITAL_ID, 0).toArray()).containsExactly(7, loaded, synced);
+        AlertListenersFinder finder = new AlertListenersFinder(volunteerJpaRepository, index);
+        finder.findListeners(alert(), 7, 10);
+        verify(volunteerJpaRepository).findContactsByIdIn(List.of(loaded, synced));
+    }
+
+    private static AlertEntity alert() {
+        HospitalEntity hospital = new HospitalEntity();
+        hospital.setId(HOSPITAL_ID);
+        AlertEntity alert = new AlertEntity();
+        alert.setHospital(hospital);
+        alert.setAlertLevel(AlertLevel.ROUTINE);
+        return alert;
+    }
+}
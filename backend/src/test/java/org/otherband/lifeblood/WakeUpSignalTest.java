@@ -0,0 +1,73 @@
+package org.otherband.lifeblood;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.notifications.wakeup.InProcessWakeUpSignal;
+import org.otherband.lifeblood.notifications.wakeup.WakeUpChannel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WakeUpSignalTest extends BaseTest {
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void signalsAreDeliveredOncePerChannelAfterCommit() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        InProcessWakeUpSignal wakeUpSignal = new InProcessWakeUpSignal(meterRegistry);
+        BlockingQueue<WakeUpChannel> wakeUps = subscribeAll(wakeUpSignal);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            wakeUpSignal.signal(WakeUpChannel.OUTBOX);
+            wakeUpSignal.signal(WakeUpChannel.ALERTS);
+            wakeUpSignal.signal(WakeUpChannel.OUTBOX);
+            assertThat(wakeUpCount(meterRegistry, WakeUpChannel.OUTBOX)).isZero();
+        });
+
+        assertThat(wakeUps.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(wakeUps.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(wakeUps.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(wakeUpCount(meterRegistry, WakeUpChannel.OUTBOX)).isEqualTo(1);
+        assertThat(wakeUpCount(meterRegistry, WakeUpChannel.ALERTS)).isEqualTo(1);
+
+        // outside a transaction there is nothing to wait for
+        wakeUpSignal.signal(WakeUpChannel.OUTBOX);
+        assertThat(wakeUps.poll(5, TimeUnit.SECONDS)).isEqualTo(WakeUpChannel.OUTBOX);
+        wakeUpSignal.close();
+    }
+
+    @Test
+    void rolledBackSignalsAreDropped() throws InterruptedException {
+        InProcessWakeUpSignal wakeUpSignal = new InProcessWakeUpSignal(new SimpleMeterRegistry());
+        BlockingQueue<WakeUpChannel> wakeUps = subscribeAll(wakeUpSignal);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            wakeUpSignal.signal(WakeUpChannel.OUTBOX);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> wakeUpSignal.signal(WakeUpChannel.ALERTS));
+
+        assertThat(wakeUps.poll(5, TimeUnit.SECONDS)).isEqualTo(WakeUpChannel.ALERTS);
+        assertThat(wakeUps.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        wakeUpSignal.close();
+    }
+
+    private static BlockingQueue<WakeUpChannel> subscribeAll(InProcessWakeUpSignal wakeUpSignal) {
+        BlockingQueue<WakeUpChannel> wakeUps = new LinkedBlockingQueue<>();
+        for (WakeUpChannel channel : WakeUpChannel.values()) {
+            wakeUpSignal.subscribe(channel, () -> wakeUps.add(channel));
+        }
+        return wakeUps;
+    }
+
+    private static double wakeUpCount(SimpleMeterRegistry meterRegistry, WakeUpChannel channel) {
+        return meterRegistry.get("notifications.wake.ups").tag("channel", channel.name()).counter().count();
+    }
+}
@@ -0,0 +1,212 @@
+package org.otherband.lifeblood;
+
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.PermanentDeliveryException;
+import org.otherband.lifeblood.notifications.ThrottledDeliveryException;
+import org.otherband.lifeblood.notifications.whatsapp.RateLimitConfig;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageSender;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderConfig;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderPool;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderPool.SenderIdentity;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WhatsAppMessageSenderTest {
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final List<Integer> requestPorts = new CopyOnWriteArrayList<>();
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private HttpClient httpClient;
+    private volatile int status = 200;
+    private volatile String retryAfter;
+    private volatile String responseBody = "{}";
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v22.0/", this::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        httpClient = WhatsAppMessageSender.httpClient(Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void stopServer() {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void reusesConnectionsBetweenRequests() {
+        WhatsAppMessageSender sender = sender();
+
+        for (int i = 0; i < 20; i++) {
+            sender.send(message("+962790000000"));
+        }
+
+        assertThat(requestBodies).hasSize(20)
+                .allSatisfy(body -> assertThat(body).contains("\"to\":\"+962790000000\"", "\"name\":\"donation_alert\""));
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test
+    void keepsManyRequestsInFlightOnPooledConnections() {
+        WhatsAppMessageSender sender = sender();
+
+        // joining the first wave means every response was read, and the client pools a connection before it
+        // completes the response read on it
+        sendConcurrently(sender, 50);
+        Set<Integer> firstWavePorts = Set.copyOf(clientPorts);
+        sendConcurrently(sender, 50);
+
+        assertThat(requestPorts).hasSize(100);
+        // the stub only speaks HTTP/1.1, so each request in flight needs a connection of its own, and the
+        // second wave only opens the ones it is short of after taking those left open by the first
+        assertThat(requestPorts.subList(50, 100)).containsAll(firstWavePorts);
+        assertThat(clientPorts).hasSizeLessThanOrEqualTo(50);
+    }
+
+    @Test
+    void clientErrorsArePermanentAndServerErrorsAreNot() {
+        WhatsAppMessageSender sender = sender();
+
+        status = 400;
+        assertThatThrownBy(() -> sender.send(message("+962790000000")))
+                .isInstanceOf(PermanentDeliveryException.class)
+                .hasMessageStartingWith("WhatsApp rejected message: 400");
+        status = 408;
+        assertThatThrownBy(() -> sender.send(message("+962790000000")))
+                .isNotInstanceOf(PermanentDeliveryException.class)
+                .hasMessageStartingWith("Failed to send WhatsApp message: 408");
+        status = 503;
+        assertThatThrownBy(() -> sender.send(message("+962790000000")))
+                .isNotInstanceOf(PermanentDeliveryException.class)
+                .hasMessageStartingWith("Failed to send WhatsApp message: 503");
+    }
+
+    private static void sendConcurrently(WhatsAppMessageSender sender, int requests) {
+        CompletableFuture.allOf(IntStream.range(0, requests)
+                        .mapToObj(i -> sender.sendAsync(message("+96279000%04d".formatted(i))))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    @Test
+    void throttlingResponsesAreReportedWithTheirRetryAfter() {
+        WhatsAppMessageSender sender = sender();
+
+        status = 429;
+        retryAfter = "7";
+        assertThatThrownBy(() -> sender.send(message("+962790000000")))
+                .isInstanceOfSatisfying(ThrottledDeliveryException.class,
+                        e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(7)));
+
+        // the Graph API also reports throughput limits as a 400 with its own error code
+        status = 400;
+        retryAfter = null;
+        responseBody = "{\"error\":{\"code\":130429,\"message\":\"Rate limit hit\"}}";
+        assertThatThrownBy(() -> sender.send(message("+962790000000")))
+                .isInstanceOf(ThrottledDeliveryException.class);
+    }
+
+    @Test
+    void waitingForATokenNeverBlocksTheCaller() {
+        // the second token is due in two seconds, the third would be past the maximum wait
+        WhatsAppMessageSender sender = sender(new RateLimitConfig(0.5, 0.5, 1, Duration.ofSeconds(3)));
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> immediate = sender.sendAsync(message("+962790000000"));
+        CompletableFuture<Void> delayed = sender.sendAsync(message("+962790000000"));
+        CompletableFuture<Void> throttled = sender.sendAsync(message("+962790000000"));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+
+        assertThat(throttled).isCompletedExceptionally();
+        immediate.join();
+        delayed.join();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(1900));
+        assertThat(requestBodies).hasSize(2);
+    }
+
+    @Test
+    void requestsThatCannotBeBuiltReleaseTheirSender() {
+        RateLimitConfig rateLimit = new RateLimitConfig(1000, 1, 1000, Duration.ofSeconds(1));
+        WhatsAppSenderPool pool = new WhatsAppSenderPool(List.of("sender-phone-id"), rateLimit);
+        ObjectMapper failingMapper = new ObjectMapper() {
+            @Override
+            public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+                throw new JsonGenerationException("Cannot serialize", (JsonGenerator) null);
+            }
+        };
+        WhatsAppMessageSender sender = new WhatsAppMessageSender(httpClient, failingMapper, config(rateLimit), pool);
+
+        CompletableFuture<Void> result = sender.sendAsync(message("+962790000000"));
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(pool.getSenders()).extracting(SenderIdentity::getInFlight).containsOnly(0);
+        assertThat(requestBodies).isEmpty();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        requestPorts.add(exchange.getRemoteAddress().getPort());
+        requestBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        assertThat(exchange.getRequestHeaders().getFirst("Authorization")).isEqualTo("Bearer token");
+        if (retryAfter != null) {
+            exchange.getResponseHeaders().add("Retry-After", retryAfter);
+        }
+        byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+    }
+
+    private WhatsAppMessageSender sender() {
+        return sender(new RateLimitConfig(1000, 1, 1000, Duration.ofSeconds(1)));
+    }
+
+    private WhatsAppMessageSender sender(RateLimitConfig rateLimit) {
+        return new WhatsAppMessageSender(httpClient, new ObjectMapper(), config(rateLimit));
+    }
+
+    private WhatsAppSenderConfig config(RateLimitConfig rateLimit) {
+        return new WhatsAppSenderConfig(
+                "http://localhost:%d/v22.0/{phoneNumberId}/messages".formatted(server.getAddress().getPort()),
+                List.of("sender-phone-id"),
+                "token",
+                "donation_alert",
+                Duration.ofSeconds(5),
+                rateLimit);
+    }
+
+    private static WhatsAppMessageEntity message(String phoneNumber) {
+        return WhatsAppMessageEntity.builder()
+                .phoneNumber(phoneNumber)
+                .payload(NotificationPayloadEntity.builder().templateName("donation_alert").build())
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+package org.otherband.lifeblood;
+
+import org.junit.jupiter.api.Test;
+import org.otherband.lifeblood.notifications.whatsapp.RateLimitConfig;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderPool;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppSenderPool.SenderIdentity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WhatsAppSenderPoolTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    @Test
+    void recipientsStickToOneSenderAndAreSpreadEvenly() {
+        WhatsAppSenderPool pool = pool(List.of("a", "b", "c"), 10_000);
+
+        Map<String, Long> sendersUsed = IntStream.range(0, 3000)
+                .mapToObj("+9627900%05d"::formatted)
+                .map(recipient -> {
+                    String phoneId = acquire(pool, recipient).getPhoneId();
+                    assertThat(acquire(pool, recipient).getPhoneId()).isEqualTo(phoneId);
+                    return phoneId;
+                })
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        assertThat(sendersUsed).containsOnlyKeys("a", "b", "c");
+        assertThat(sendersUsed.values()).allSatisfy(count -> assertThat(count).isBetween(800L, 1200L));
+    }
+
+    @Test
+    void throughputScalesWithTheNumberOfSenders() {
+        WhatsAppSenderPool pool = pool(List.of("a", "b", "c"), 5);
+
+        // every request goes to the same recipient, the others take over once its sender runs dry
+        for (int i = 0; i < 15; i++) {
+            assertThat(pool.reserve("+962790000000")).isPresent();
+        }
+        assertThat(pool.reserve("+962790000000")).isEmpty();
+        assertThat(pool.getSenders()).extracting(SenderIdentity::getInFlight).containsOnly(5);
+    }
+
+    @Test
+    void overflowGoesToTheLeastLoadedSender() {
+        List<String> phoneIds = List.of("a", "b", "c");
+        WhatsAppSenderPool pool = pool(phoneIds, 5);
+        String recipient = "+962790000000";
+        String preferred = preferredSender(phoneIds, recipient);
+        String busy = phoneIds.stream().filter(phoneId -> !phoneId.equals(preferred)).findFirst().orElseThrow();
+        String idle = phoneIds.stream()
+                .filter(phoneId -> !phoneId.equals(preferred) && !phoneId.equals(busy))
+                .findFirst()
+                .orElseThrow();
+        String busyRecipient = IntStream.range(0, 1000)
+                .mapToObj("+9627900%05d"::formatted)
+                .filter(candidate -> preferredSender(phoneIds, candidate).equals(busy))
+                .findFirst()
+                .orElseThrow();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(acquire(pool, recipient).getPhoneId()).isEqualTo(preferred);
+        }
+        for (int i = 0; i < 2; i++) {
+            assertThat(acquire(pool, busyRecipient).getPhoneId()).isEqualTo(busy);
+        }
+
+        assertThat(acquire(pool, recipient).getPhoneId()).isEqualTo(idle);
+    }
+
+    @Test
+    void unhealthySendersAreTakenOutOfRotationForAWhile() {
+        WhatsAppSenderPool pool = pool(List.of("a", "b"), 10_000);
+        String recipient = "+962790000000";
+        SenderIdentity preferred = acquire(pool, recipient);
+        preferred.failed();
+        for (int i = 0; i < 2; i++) {
+            acquire(pool, recipient).failed();
+        }
+
+        assertThat(acquire(pool, recipient)).isNotSameAs(preferred);
+
+        nanoTime.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertThat(acquire(pool, recipient)).isSameAs(preferred);
+    }
+
+    private String preferredSender(List<String> phoneIds, String recipient) {
+        return acquire(pool(phoneIds, 10_000), recipient).getPhoneId();
+    }
+
+    private WhatsAppSenderPool pool(List<String> phoneIds, int burst) {
+        return new WhatsAppSenderPool(phoneIds, new RateLimitConfig(1, 1, burst, Duration.ZERO), nanoTime::get);
+    }
+
+    private static SenderIdentity acquire(WhatsAppSenderPool pool, String recipient) {
+        return pool.reserve(recipient).orElseThrow().sender();
+    }
+}
@@ -0,0 +1,87 @@
+package org.otherband.lifeblood.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.otherband.lifeblood.TimeService;
+import org.otherband.lifeblood.auth.JwtPrincipal;
+import org.otherband.lifeblood.auth.JwtService;
+import org.otherband.lifeblood.auth.RefreshTokenRepository;
+import org.otherband.lifeblood.volunteer.UserDetails;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Authenticates the same access token over and over, once the way the filter used to (a fresh key and parser
+ * for each of the five claim lookups of a request) and once with {@link JwtService#verify(String)}.
+ * Run with {@code mvn test -Dtest=JwtAuthenticationBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class JwtAuthenticationBenchmarkTest {
+
+    private static final String SECRET_KEY = "benchmark-secret-key-that-is-at-least-256-bits-long-for-hmac";
+    private static final int REQUESTS = 200_000;
+
+    private final JwtService jwtService = new JwtService(SECRET_KEY, 15, 30, new TimeService(),
+            mock(RefreshTokenRepository.class));
+    private final String token = jwtService.generateToken(UserDetails.builder()
+            .phoneNumber("+962790000000")
+            .roles(List.of("ROLE_VOLUNTEER"))
+            .build(), UUID.randomUUID().toString());
+
+    @Test
+    void perRequestAuthentication() {
+        ToIntFunction<String> previous = JwtAuthenticationBenchmarkTest::authenticateLikeBefore;
+        ToIntFunction<String> singleParse = token -> {
+            JwtPrincipal principal = jwtService.verify(token);
+            return principal.roles().size() + principal.userUuid().length();
+        };
+        authenticate(previous, REQUESTS / 10); // warm-up
+        authenticate(singleParse, REQUESTS / 10);
+        double before = authenticate(previous, REQUESTS);
+        double after = authenticate(singleParse, REQUESTS);
+        log.info("Authenticating [{}] requests: five parses [{}] ns/request, single parse [{}] ns/request",
+                REQUESTS, Math.round(before), Math.round(after));
+    }
+
+    private double authenticate(ToIntFunction<String> authentication, int requests) {
+        int blackhole = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            blackhole += authentication.applyAsInt(token);
+        }
+        double nanosPerRequest = (double) (System.nanoTime() - start) / requests;
+        if (blackhole == 42) {
+            log.trace("unlikely");
+        }
+        return nanosPerRequest;
+    }
+
+    /**
+     * The lookups the filter made per request before, each rebuilding the key and the parser.
+     */
+    @SuppressWarnings("unchecked")
+    private static int authenticateLikeBefore(String token) {
+        String subject = parse(token).getSubject();
+        parse(token); // signature check
+        parse(token).getExpiration();
+        List<String> roles = (List<String>) parse(token).get("roles");
+        String userUuid = (String) parse(token).get("user_uuid");
+        return subject.length() + roles.size() + userUuid.length();
+    }
+
+    private static Claims parse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+}
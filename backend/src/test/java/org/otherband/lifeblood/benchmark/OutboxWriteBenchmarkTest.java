@@ -0,0 +1,99 @@
+package org.otherband.lifeblood.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.otherband.lifeblood.BaseTest;
+import org.otherband.lifeblood.generated.model.PushNotificationType;
+import org.otherband.lifeblood.notifications.NotificationPayloadEntity;
+import org.otherband.lifeblood.notifications.NotificationPayloadRepository;
+import org.otherband.lifeblood.notifications.push.PushNotification;
+import org.otherband.lifeblood.notifications.whatsapp.WhatsAppMessageEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes the outbox rows of a 50k-recipient alert the way the fan-out does, once with JDBC batching
+ * disabled for the session (one round-trip per row) and once with the configured batch size.
+ * Run with {@code mvn test -Dtest=OutboxWriteBenchmarkTest -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+public class OutboxWriteBenchmarkTest extends BaseTest {
+
+    private static final int RECIPIENTS = 50_000;
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private NotificationPayloadRepository notificationPayloadRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void fiftyThousandRecipientAlert() {
+        writeOutbox(RECIPIENTS / 10, null); // warm-up
+        double unbatched = writeOutbox(RECIPIENTS, 1);
+        double batched = writeOutbox(RECIPIENTS, null);
+        log.info("Outbox writes for [{}] recipients: unbatched [{}] rows/sec, batched [{}] rows/sec",
+                RECIPIENTS, Math.round(unbatched), Math.round(batched));
+    }
+
+    private double writeOutbox(int recipients, Integer jdbcBatchSize) {
+        NotificationPayloadEntity payload = notificationPayloadRepository.save(NotificationPayloadEntity.builder()
+                .pushTitle("Life or death alert")
+                .pushBody("Donation request at hospital Benchmark Hospital with level Life or death.")
+                .templateName("benchmark")
+                .templateVariables(List.of("Life or death", "Benchmark Hospital", ""))
+                .build());
+        List<WhatsAppMessageEntity> savedMessages = new ArrayList<>();
+        List<PushNotification> savedNotifications = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int offset = 0; offset < recipients; offset += CHUNK_SIZE) {
+            int chunkSize = Math.min(CHUNK_SIZE, recipients - offset);
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+                savedMessages.addAll(whatsAppMessageRepository.saveAll(whatsAppMessages(payload, chunkSize)));
+                savedNotifications.addAll(pushNotificationRepository.saveAll(pushNotifications(payload, chunkSize)));
+            });
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        whatsAppMessageRepository.deleteAllInBatch(savedMessages);
+        pushNotificationRepository.deleteAllInBatch(savedNotifications);
+        notificationPayloadRepository.delete(payload);
+        return (savedMessages.size() + savedNotifications.size()) / seconds;
+    }
+
+    private static List<WhatsAppMessageEntity> whatsAppMessages(NotificationPayloadEntity payload, int count) {
+        List<WhatsAppMessageEntity> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(WhatsAppMessageEntity.builder()
+                    .payload(payload)
+                    .phoneNumber(randomPhoneNumber())
+                    .build());
+        }
+        return messages;
+    }
+
+    private static List<PushNotification> pushNotifications(NotificationPayloadEntity payload, int count) {
+        List<PushNotification> notifications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            notifications.add(PushNotification.builder()
+                    .pushNotificationType(PushNotificationType.FIREBASE)
+                    .payload(payload)
+                    .userToken(UUID.randomUUID().toString())
+                    .build());
+        }
+        return notifications;
+    }
+}
@@ -6,7 +6,10 @@ import {
   VolunteerResponse,
 } from "../generated-open-api";
 import { UserContextType } from "../Screens/UserContext";
-import { getFromAsyncStorage } from "../utils/asyncStorageUtils";
+import {
+  getFromAsyncStorage,
+  saveToAsyncStorage,
+} from "../utils/asyncStorageUtils";
 import { apiClient } from "./apiClientConfig";
 
 function toBearerToken(tokenString: string) {
@@ -61,6 +64,12 @@ export const fetchAuthToken = async (): Promise<string> => {
     refreshToken: refreshToken,
   });
 
+  // refresh tokens are single use, the server sends the one replacing it
+  const rotatedRefreshToken = response.headers["x-refresh-token"];
+  if (rotatedRefreshToken) {
+    await saveToAsyncStorage("REFRESH_TOKEN", rotatedRefreshToken);
+  }
+
   return response.data;
 };
 